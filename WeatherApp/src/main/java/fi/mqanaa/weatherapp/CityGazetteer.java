@@ -0,0 +1,456 @@
+package fi.mqanaa.weatherapp;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline gazetteer of cities, for resolving city names without the
+ * geocoding API. The gazetteer is a compact binary file, converted from a
+ * GeoNames cities dataset with {@link #main(String[])}, that is memory-mapped
+ * instead of read into the heap. Names are looked up by binary search over
+ * keys sorted by their normalized UTF-8 bytes, and the city nearest to a
+ * coordinate is found with a k-d tree stored in the file.
+ * <p>
+ * File layout, big-endian: a header of magic, version, city count, key count
+ * and string pool size; the cities (latitude, longitude, name offset, country);
+ * the keys (key offset, city) sorted by key and then by population; the k-d
+ * tree nodes (unit vector x, y, z, city) in implicit median order; and the
+ * string pool of length-prefixed UTF-8 strings.
+ */
+public final class CityGazetteer {
+
+    private static final int MAGIC = 0x57474a54;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+    private static final int CITY_SIZE = 16;
+    private static final int KEY_SIZE = 8;
+    private static final int NODE_SIZE = 16;
+    private static final Pattern COORDINATES = Pattern.compile(
+            "\\s*(-?\\d{1,2}(?:\\.\\d+)?)\\s*,\\s*(-?\\d{1,3}(?:\\.\\d+)?)\\s*");
+    private static final Pattern COUNTRY_SUFFIX = Pattern.compile("(.+?)\\s*,\\s*([a-z]{2})");
+    private static final CityGazetteer EMPTY = new CityGazetteer(emptyBuffer());
+
+    private final ByteBuffer buffer;
+    private final int cityCount;
+    private final int keyCount;
+    private final int citiesStart;
+    private final int keysStart;
+    private final int nodesStart;
+    private final int poolStart;
+
+    private CityGazetteer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a city gazetteer");
+        }
+        this.cityCount = buffer.getInt(8);
+        this.keyCount = buffer.getInt(12);
+        int poolSize = buffer.getInt(16);
+        this.citiesStart = HEADER_SIZE;
+        this.keysStart = citiesStart + cityCount * CITY_SIZE;
+        this.nodesStart = keysStart + keyCount * KEY_SIZE;
+        this.poolStart = nodesStart + cityCount * NODE_SIZE;
+        if (cityCount < 0 || keyCount < 0 || poolSize < 0 || (long) poolStart + poolSize != buffer.capacity()) {
+            throw new IllegalArgumentException("Truncated city gazetteer");
+        }
+    }
+
+    /**
+     * Opens a gazetteer file by memory-mapping it.
+     *
+     * @param file the gazetteer file.
+     * @return the gazetteer.
+     * @throws IOException if the file cannot be read or is not a valid gazetteer.
+     */
+    public static CityGazetteer open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CityGazetteer(mapped);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + ": " + file, e);
+        }
+    }
+
+    /**
+     * Returns a gazetteer without cities, for running without a gazetteer file.
+     *
+     * @return the empty gazetteer.
+     */
+    public static CityGazetteer empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the number of cities in the gazetteer.
+     *
+     * @return the number of cities.
+     */
+    public int size() {
+        return cityCount;
+    }
+
+    /**
+     * Looks up a location. A city name may be followed by a comma and a
+     * two-letter country code, and the most populous matching city is
+     * returned. Coordinates, such as "60.17, 24.94", are named after the
+     * nearest city.
+     *
+     * @param query the location query as typed.
+     * @return an array containing latitude, longitude and the name of the city, or null if not found.
+     */
+    public String[] lookUp(String query) {
+        if (cityCount == 0) {
+            return null;
+        }
+        Matcher coordinates = COORDINATES.matcher(query);
+        if (coordinates.matches()) {
+            double lat = Double.parseDouble(coordinates.group(1));
+            double lon = Double.parseDouble(coordinates.group(2));
+            if (Math.abs(lat) > 90 || Math.abs(lon) > 180) {
+                return null;
+            }
+            int city = nearestCity(lat, lon);
+            return new String[] {coordinates.group(1), coordinates.group(2), readString(cityNameOffset(city))};
+        }
+        String key = GeocodingCache.normalize(query);
+        String country = null;
+        Matcher suffix = COUNTRY_SUFFIX.matcher(key);
+        if (suffix.matches()) {
+            key = suffix.group(1);
+            country = suffix.group(2).toUpperCase(Locale.ROOT);
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        // Keys of the same name are ordered by population, so the first match is the largest city
+        for (int i = lowerBound(keyBytes); i < keyCount && compareKey(i, keyBytes) == 0; i++) {
+            int city = buffer.getInt(keysStart + i * KEY_SIZE + 4);
+            if (country == null || country.equals(cityCountry(city))) {
+                return cityLocation(city);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the city nearest to a coordinate.
+     *
+     * @param lat the latitude in degrees.
+     * @param lon the longitude in degrees.
+     * @return an array containing latitude, longitude and the name of the city, or null if the gazetteer is empty.
+     */
+    public String[] nearest(double lat, double lon) {
+        if (cityCount == 0) {
+            return null;
+        }
+        return cityLocation(nearestCity(lat, lon));
+    }
+
+    private String[] cityLocation(int city) {
+        int offset = citiesStart + city * CITY_SIZE;
+        return new String[] {
+            Float.toString(buffer.getFloat(offset)),
+            Float.toString(buffer.getFloat(offset + 4)),
+            readString(buffer.getInt(offset + 8))
+        };
+    }
+
+    private int cityNameOffset(int city) {
+        return buffer.getInt(citiesStart + city * CITY_SIZE + 8);
+    }
+
+    private String cityCountry(int city) {
+        int packed = buffer.getInt(citiesStart + city * CITY_SIZE + 12);
+        return new String(new char[] {(char) (packed >>> 16), (char) (packed & 0xffff)});
+    }
+
+    private int lowerBound(byte[] keyBytes) {
+        int low = 0;
+        int high = keyCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKey(mid, keyBytes) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Compares the key at an index with a query, as unsigned bytes, without decoding the key
+    private int compareKey(int index, byte[] keyBytes) {
+        int offset = poolStart + buffer.getInt(keysStart + index * KEY_SIZE);
+        int length = Short.toUnsignedInt(buffer.getShort(offset));
+        int common = Math.min(length, keyBytes.length);
+        for (int i = 0; i < common; i++) {
+            int diff = Byte.toUnsignedInt(buffer.get(offset + 2 + i)) - Byte.toUnsignedInt(keyBytes[i]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - keyBytes.length;
+    }
+
+    private String readString(int poolOffset) {
+        int offset = poolStart + poolOffset;
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort(offset))];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int nearestCity(double lat, double lon) {
+        double[] target = unitVector(lat, lon);
+        // Index 0 holds the best node so far, index 1 the squared chord distance to it
+        double[] best = {-1, Double.POSITIVE_INFINITY};
+        searchTree(0, cityCount, 0, target, best);
+        return buffer.getInt(nodesStart + (int) best[0] * NODE_SIZE + 12);
+    }
+
+    private void searchTree(int low, int high, int axis, double[] target, double[] best) {
+        if (low >= high) {
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        int offset = nodesStart + mid * NODE_SIZE;
+        double dx = buffer.getFloat(offset) - target[0];
+        double dy = buffer.getFloat(offset + 4) - target[1];
+        double dz = buffer.getFloat(offset + 8) - target[2];
+        double distance = dx * dx + dy * dy + dz * dz;
+        if (distance < best[1]) {
+            best[0] = mid;
+            best[1] = distance;
+        }
+        double split = target[axis] - buffer.getFloat(offset + axis * 4);
+        int nextAxis = (axis + 1) % 3;
+        if (split < 0) {
+            searchTree(low, mid, nextAxis, target, best);
+            if (split * split < best[1]) {
+                searchTree(mid + 1, high, nextAxis, target, best);
+            }
+        } else {
+            searchTree(mid + 1, high, nextAxis, target, best);
+            if (split * split < best[1]) {
+                searchTree(low, mid, nextAxis, target, best);
+            }
+        }
+    }
+
+    // Points on the unit sphere, so that the nearest point by chord is the nearest by great circle
+    private static double[] unitVector(double lat, double lon) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        return new double[] {
+            Math.cos(phi) * Math.cos(lambda),
+            Math.cos(phi) * Math.sin(lambda),
+            Math.sin(phi)
+        };
+    }
+
+    private static ByteBuffer emptyBuffer() {
+        ByteBuffer empty = ByteBuffer.allocate(HEADER_SIZE);
+        empty.putInt(MAGIC).putInt(VERSION).putInt(0).putInt(0).putInt(0);
+        return empty;
+    }
+
+    /**
+     * Converts a GeoNames cities dataset, such as cities15000.txt, into a
+     * gazetteer file. Run as part of packaging with the runtime class path, for example:
+     * {@code java -cp target/classes:gson.jar fi.mqanaa.weatherapp.CityGazetteer cities15000.txt cities.bin}
+     *
+     * @param args the GeoNames file and the gazetteer file to write.
+     * @throws IOException if a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CityGazetteer <geonames.txt> <gazetteer.bin>");
+            System.exit(2);
+        }
+        int count = convertGeoNames(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Wrote " + count + " cities to " + args[1]);
+    }
+
+    /**
+     * Converts a GeoNames cities dataset into a gazetteer file. Every city is
+     * found by its name and by its ASCII name.
+     *
+     * @param geoNamesFile the tab-separated GeoNames file.
+     * @param gazetteerFile the gazetteer file to write.
+     * @return the number of cities written.
+     * @throws IOException if a file cannot be read or written.
+     */
+    public static int convertGeoNames(Path geoNamesFile, Path gazetteerFile) throws IOException {
+        List<Writer.City> cities = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(geoNamesFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length < 15 || fields[8].length() != 2) {
+                    continue;
+                }
+                try {
+                    cities.add(new Writer.City(fields[1], fields[2], fields[8],
+                            Float.parseFloat(fields[4]), Float.parseFloat(fields[5]),
+                            fields[14].isEmpty() ? 0 : Long.parseLong(fields[14])));
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping invalid GeoNames line: " + fields[0]);
+                }
+            }
+        }
+        new Writer(cities).write(gazetteerFile);
+        return cities.size();
+    }
+
+    /**
+     * Writes cities into the binary format of the gazetteer.
+     */
+    private static final class Writer {
+        private final List<City> cities;
+        private final StringPool pool = new StringPool();
+
+        private Writer(List<City> cities) {
+            this.cities = cities;
+        }
+
+        private void write(Path file) throws IOException {
+            int[] nameOffsets = new int[cities.size()];
+            List<int[]> keys = new ArrayList<>();
+            Map<String, Integer> keyOffsets = new HashMap<>();
+            for (int i = 0; i < cities.size(); i++) {
+                City city = cities.get(i);
+                nameOffsets[i] = pool.add(city.name);
+                String key = GeocodingCache.normalize(city.name);
+                keys.add(new int[] {keyOffsets.computeIfAbsent(key, pool::add), i});
+                String asciiKey = GeocodingCache.normalize(city.asciiName);
+                if (!asciiKey.isEmpty() && !asciiKey.equals(key)) {
+                    keys.add(new int[] {keyOffsets.computeIfAbsent(asciiKey, pool::add), i});
+                }
+            }
+            Comparator<int[]> byKey = (a, b) -> Arrays.compareUnsigned(pool.bytesAt(a[0]), pool.bytesAt(b[0]));
+            keys.sort(byKey.thenComparing(key -> cities.get(key[1]).population, Comparator.reverseOrder()));
+
+            Integer[] nodes = new Integer[cities.size()];
+            double[][] points = new double[cities.size()][];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = i;
+                points[i] = unitVector(cities.get(i).lat, cities.get(i).lon);
+            }
+            buildTree(nodes, points, 0, nodes.length, 0);
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(cities.size());
+                out.writeInt(keys.size());
+                out.writeInt(pool.size());
+                for (int i = 0; i < cities.size(); i++) {
+                    City city = cities.get(i);
+                    out.writeFloat(city.lat);
+                    out.writeFloat(city.lon);
+                    out.writeInt(nameOffsets[i]);
+                    out.writeInt(city.country.charAt(0) << 16 | city.country.charAt(1));
+                }
+                for (int[] key : keys) {
+                    out.writeInt(key[0]);
+                    out.writeInt(key[1]);
+                }
+                for (int node : nodes) {
+                    out.writeFloat((float) points[node][0]);
+                    out.writeFloat((float) points[node][1]);
+                    out.writeFloat((float) points[node][2]);
+                    out.writeInt(node);
+                }
+                pool.writeTo(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        // Orders the range so that the median by the axis is in the middle, recursively
+        private static void buildTree(Integer[] nodes, double[][] points, int low, int high, int axis) {
+            if (high - low <= 1) {
+                return;
+            }
+            Arrays.sort(nodes, low, high, Comparator.comparingDouble(node -> points[node][axis]));
+            int mid = (low + high) >>> 1;
+            int nextAxis = (axis + 1) % 3;
+            buildTree(nodes, points, low, mid, nextAxis);
+            buildTree(nodes, points, mid + 1, high, nextAxis);
+        }
+
+        /**
+         * A city of the dataset being converted.
+         */
+        private static final class City {
+            private final String name;
+            private final String asciiName;
+            private final String country;
+            private final float lat;
+            private final float lon;
+            private final long population;
+
+            private City(String name, String asciiName, String country, float lat, float lon, long population) {
+                this.name = name;
+                this.asciiName = asciiName;
+                this.country = country.toUpperCase(Locale.ROOT);
+                this.lat = lat;
+                this.lon = lon;
+                this.population = population;
+            }
+        }
+    }
+
+    /**
+     * String pool of length-prefixed UTF-8 strings.
+     */
+    private static final class StringPool {
+        private final List<byte[]> strings = new ArrayList<>();
+        private final Map<Integer, byte[]> byOffset = new HashMap<>();
+        private int size;
+
+        private int add(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xffff) {
+                throw new IllegalArgumentException("String too long for the gazetteer: " + value);
+            }
+            int offset = size;
+            strings.add(bytes);
+            byOffset.put(offset, bytes);
+            size += 2 + bytes.length;
+            return offset;
+        }
+
+        private byte[] bytesAt(int offset) {
+            return byOffset.get(offset);
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            for (byte[] bytes : strings) {
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package fi.mqanaa.weatherapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Prefix index of the cities the user has searched, marked as favorites or
+ * that have been resolved before, for suggesting cities while typing.
+ * The cities are kept in a sorted map by their normalized name, so the
+ * cities starting with a prefix are a contiguous range found by binary
+ * search, and adding a city never rebuilds the index. Suggestions are
+ * ranked by frecency: how often and how recently a city was searched, with
+ * favorites ranked above other cities.
+ */
+public class CityIndex {
+
+    // Weight of a search halves every week
+    private static final double HALF_LIFE_MILLIS = 7 * 24 * 60 * 60 * 1000.0;
+    private static final double FAVORITE_SCORE = 2.0;
+    private static final double KNOWN_SCORE = 0.1;
+
+    private final TreeMap<String, City> cities = new TreeMap<>();
+
+    /**
+     * Adds or updates a searched city.
+     *
+     * @param name the name of the city.
+     * @param hitCount the number of searches of the city.
+     * @param lastUsed the time of the latest search in milliseconds since the epoch.
+     */
+    public synchronized void addSearched(String name, int hitCount, long lastUsed) {
+        City city = cityOf(name);
+        city.hitCount = hitCount;
+        city.lastUsed = lastUsed;
+    }
+
+    /**
+     * Forgets the searches of a city, such as when it drops out of the
+     * search history. The city stays in the index without their boost.
+     *
+     * @param name the name of the city.
+     */
+    public synchronized void removeSearched(String name) {
+        City city = cities.get(GeocodingCache.normalize(name));
+        if (city != null) {
+            city.hitCount = 0;
+            city.lastUsed = 0;
+        }
+    }
+
+    /**
+     * Marks a city as a favorite.
+     *
+     * @param name the name of the city.
+     */
+    public synchronized void addFavorite(String name) {
+        cityOf(name).isFavorite = true;
+    }
+
+    /**
+     * Removes the favorite mark of a city. The city stays in the index.
+     *
+     * @param name the name of the city.
+     */
+    public synchronized void removeFavorite(String name) {
+        City city = cities.get(GeocodingCache.normalize(name));
+        if (city != null) {
+            city.isFavorite = false;
+        }
+    }
+
+    /**
+     * Adds a city that has been resolved by a geocoding lookup.
+     *
+     * @param name the resolved name of the city.
+     */
+    public synchronized void addKnown(String name) {
+        cityOf(name);
+    }
+
+    /**
+     * Returns the best ranked cities starting with a prefix.
+     *
+     * @param prefix the text typed so far.
+     * @param limit the maximum number of suggestions.
+     * @return the names of the suggested cities, best first.
+     */
+    public synchronized List<String> suggest(String prefix, int limit) {
+        String key = GeocodingCache.normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        // Keeps the best cities seen so far, worst on top
+        PriorityQueue<ScoredCity> best = new PriorityQueue<>(Comparator.comparingDouble(ScoredCity::score));
+        for (City city : cities.subMap(key, true, key + Character.MAX_VALUE, false).values()) {
+            double score = city.score(now);
+            if (best.size() < limit) {
+                best.add(new ScoredCity(city.name, score));
+            } else if (score > best.peek().score()) {
+                best.poll();
+                best.add(new ScoredCity(city.name, score));
+            }
+        }
+        List<ScoredCity> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingDouble(ScoredCity::score).reversed()
+                .thenComparing(ScoredCity::name));
+        List<String> names = new ArrayList<>(ranked.size());
+        for (ScoredCity city : ranked) {
+            names.add(city.name());
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Returns the number of cities in the index.
+     *
+     * @return the size of the index.
+     */
+    public synchronized int size() {
+        return cities.size();
+    }
+
+    private City cityOf(String name) {
+        return cities.computeIfAbsent(GeocodingCache.normalize(name), key -> new City(name.trim()));
+    }
+
+    /**
+     * A city with its score for one query.
+     *
+     * @param name the name of the city.
+     * @param score the score of the city.
+     */
+    private record ScoredCity(String name, double score) {
+    }
+
+    /**
+     * A city of the index and what is known of its use.
+     */
+    private static final class City {
+        private final String name;
+        private int hitCount;
+        private long lastUsed;
+        private boolean isFavorite;
+
+        private City(String name) {
+            this.name = name;
+        }
+
+        private double score(long now) {
+            double recency = Math.pow(0.5, Math.max(0, now - lastUsed) / HALF_LIFE_MILLIS);
+            return hitCount * recency + (isFavorite ? FAVORITE_SCORE : 0) + KNOWN_SCORE;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package fi.mqanaa.weatherapp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A provider that combines several providers, preferring whichever has
+ * recently been the fastest and most reliable.
+ * For every call the providers are ranked by their median latency, weighted
+ * by their recent error rate. Depending on the mode, the call is either
+ * raced on the best two providers, using the first answer, or tried on one
+ * provider after another until one succeeds.
+ * Results of different providers are only interchangeable if the providers
+ * agree on coordinates and city IDs, as OpenWeatherMap compatible servers do.
+ */
+public class CompositeWeatherProvider implements WeatherProvider {
+
+    /**
+     * How a call is distributed over the providers.
+     */
+    public enum Mode {
+        /**
+         * The call is sent to the best two providers at once and the first answer wins.
+         */
+        RACE,
+        /**
+         * The call is sent to the best provider, and to the next one only if it fails.
+         */
+        FALLBACK
+    }
+
+    private static final int MAX_RACERS = 2;
+    private static final int LATENCY_WINDOW = 64;
+    // Weight of the latest call in the error rate; higher values forget old failures faster
+    private static final double ERROR_RATE_WEIGHT = 0.2;
+    private static final double MAX_ERROR_RATE = 0.9;
+
+    // Daemon threads so racing calls never keep the JVM alive
+    private static final ExecutorService RACE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "provider-race");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Mode mode;
+    private final List<Backend> backends = new ArrayList<>();
+
+    /**
+     * Initializes a composite provider.
+     *
+     * @param mode how calls are distributed over the providers.
+     * @param providers the providers, in the order they are preferred in before any has been measured.
+     */
+    public CompositeWeatherProvider(Mode mode, List<WeatherProvider> providers) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("At least one provider is required");
+        }
+        this.mode = mode;
+        for (WeatherProvider provider : providers) {
+            backends.add(new Backend(provider));
+        }
+    }
+
+    @Override
+    public String[] resolveLocation(String location, Deadline deadline) throws WeatherApiException {
+        return call(provider -> provider.resolveLocation(location, deadline), deadline);
+    }
+
+    @Override
+    public HourlyWeatherDataEntry getCurrentWeatherEntry(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException {
+        return call(provider -> provider.getCurrentWeatherEntry(coordinates, unitCode, deadline), deadline);
+    }
+
+    @Override
+    public List<HourlyWeatherDataEntry> getHourlyEntries(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException {
+        return call(provider -> provider.getHourlyEntries(coordinates, unitCode, deadline), deadline);
+    }
+
+    @Override
+    public List<DailyWeatherDataEntry> getDailyEntries(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException {
+        return call(provider -> provider.getDailyEntries(coordinates, unitCode, deadline), deadline);
+    }
+
+    @Override
+    public Map.Entry<Long, HourlyWeatherDataEntry> getCityCurrentWeatherEntry(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException {
+        return call(provider -> provider.getCityCurrentWeatherEntry(coordinates, unitCode, deadline), deadline);
+    }
+
+    @Override
+    public Map<Long, HourlyWeatherDataEntry> getCurrentWeatherEntries(List<Long> cityIds, String unitCode,
+            Deadline deadline) throws WeatherApiException {
+        return call(provider -> provider.getCurrentWeatherEntries(cityIds, unitCode, deadline), deadline);
+    }
+
+    /**
+     * Returns the providers ranked from the most to the least preferred.
+     *
+     * @return the ranked providers.
+     */
+    public List<WeatherProvider> getRanking() {
+        List<WeatherProvider> ranking = new ArrayList<>();
+        for (Backend backend : rank()) {
+            ranking.add(backend.provider);
+        }
+        return ranking;
+    }
+
+    /**
+     * A call to a single provider.
+     *
+     * @param <T> the type of the result.
+     */
+    @FunctionalInterface
+    private interface Call<T> {
+        T call(WeatherProvider provider) throws WeatherApiException;
+    }
+
+    /**
+     * Distributes a call over the providers according to the mode.
+     *
+     * @param <T> the type of the result.
+     * @param call the call to make.
+     * @param deadline the deadline of the operation the call belongs to.
+     * @return the result of the first provider that succeeded.
+     * @throws WeatherApiException the failure of the providers if none succeeded.
+     */
+    private <T> T call(Call<T> call, Deadline deadline) throws WeatherApiException {
+        List<Backend> ranked = rank();
+        if (mode == Mode.FALLBACK || ranked.size() == 1) {
+            return fallback(ranked, call, deadline, null);
+        }
+        List<Backend> racers = chooseRacers(ranked);
+        try {
+            return race(racers, call, deadline);
+        } catch (WeatherApiException e) {
+            if (e.getKind() == WeatherApiException.Kind.NOT_FOUND || e.getKind() == WeatherApiException.Kind.CANCELLED) {
+                throw e;
+            }
+            List<Backend> remaining = new ArrayList<>(ranked);
+            remaining.removeAll(racers);
+            return fallback(remaining, call, deadline, e);
+        }
+    }
+
+    /**
+     * Chooses the providers to race: the best ranked ones, but always
+     * including the fastest provider measured so far, so that racing a
+     * provider that has not been called yet never costs more than the
+     * known latency.
+     *
+     * @param ranked the providers from the most to the least preferred.
+     * @return the providers to race.
+     */
+    private static List<Backend> chooseRacers(List<Backend> ranked) {
+        List<Backend> racers = new ArrayList<>(ranked.subList(0, Math.min(MAX_RACERS, ranked.size())));
+        for (Backend backend : ranked) {
+            if (backend.isMeasured()) {
+                if (!racers.contains(backend)) {
+                    racers.set(racers.size() - 1, backend);
+                }
+                break;
+            }
+        }
+        return racers;
+    }
+
+    /**
+     * Tries a call on one provider after another until one succeeds.
+     *
+     * @param <T> the type of the result.
+     * @param candidates the providers in the order they are tried.
+     * @param call the call to make.
+     * @param deadline the deadline of the operation the call belongs to.
+     * @param failure the failure of earlier attempts, or null.
+     * @return the result of the first provider that succeeded.
+     * @throws WeatherApiException the most relevant failure if no provider succeeded.
+     */
+    private <T> T fallback(List<Backend> candidates, Call<T> call, Deadline deadline,
+            WeatherApiException failure) throws WeatherApiException {
+        for (Backend backend : candidates) {
+            if (deadline.isExpired()) {
+                break;
+            }
+            try {
+                return backend.call(call);
+            } catch (WeatherApiException e) {
+                if (e.getKind() == WeatherApiException.Kind.CANCELLED) {
+                    throw e;
+                }
+                failure = moreRelevant(failure, e);
+            }
+        }
+        if (failure == null) {
+            throw new WeatherApiException(WeatherApiException.Kind.TIMEOUT, "Weather data request timed out", null);
+        }
+        throw failure;
+    }
+
+    /**
+     * Sends a call to several providers at once and returns the first
+     * successful result. The remaining calls are cancelled.
+     *
+     * @param <T> the type of the result.
+     * @param racers the providers to race.
+     * @param call the call to make.
+     * @param deadline the deadline of the operation the call belongs to.
+     * @return the first successful result.
+     * @throws WeatherApiException the most relevant failure if no provider succeeded.
+     */
+    private <T> T race(List<Backend> racers, Call<T> call, Deadline deadline) throws WeatherApiException {
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(RACE_EXECUTOR);
+        List<Future<T>> attempts = new ArrayList<>();
+        for (Backend backend : racers) {
+            attempts.add(completion.submit(() -> backend.call(call)));
+        }
+
+        WeatherApiException failure = null;
+        try {
+            for (int i = 0; i < attempts.size(); i++) {
+                Future<T> done = completion.poll(deadline.remaining().toMillis(), TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    throw new WeatherApiException(WeatherApiException.Kind.TIMEOUT, "Weather data request timed out", failure);
+                }
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    failure = moreRelevant(failure, e.getCause() instanceof WeatherApiException
+                            ? (WeatherApiException) e.getCause()
+                            : new WeatherApiException(WeatherApiException.Kind.NETWORK, "Failed to read weather data.", e.getCause()));
+                }
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WeatherApiException(WeatherApiException.Kind.CANCELLED, "Weather data request was cancelled", e);
+        } finally {
+            attempts.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+
+    /**
+     * Chooses which of two failures to report. A provider reporting that a
+     * location does not exist is a definite answer, unlike a network error.
+     *
+     * @param current the failure reported so far, or null.
+     * @param next the latest failure.
+     * @return the failure to report.
+     */
+    private static WeatherApiException moreRelevant(WeatherApiException current, WeatherApiException next) {
+        if (current != null && current.getKind() == WeatherApiException.Kind.NOT_FOUND) {
+            return current;
+        }
+        return next;
+    }
+
+    /**
+     * Ranks the providers by their score. Providers that have not been
+     * measured yet come first, so that every provider gets measured.
+     *
+     * @return the providers from the most to the least preferred.
+     */
+    private List<Backend> rank() {
+        List<Backend> ranked = new ArrayList<>(backends);
+        // Scores are computed once, as they may change while sorting
+        Map<Backend, Double> scores = new IdentityHashMap<>();
+        for (Backend backend : ranked) {
+            scores.put(backend, backend.getScore());
+        }
+        ranked.sort(Comparator.comparingDouble(scores::get));
+        return ranked;
+    }
+
+    /**
+     * A provider together with its measured latency and error rate.
+     */
+    private static final class Backend {
+        private final WeatherProvider provider;
+        private final LatencyTracker latencies = new LatencyTracker(LATENCY_WINDOW);
+        private double errorRate;
+
+        Backend(WeatherProvider provider) {
+            this.provider = provider;
+        }
+
+        <T> T call(Call<T> call) throws WeatherApiException {
+            long start = System.nanoTime();
+            try {
+                T result = call.call(provider);
+                latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                recordOutcome(false);
+                return result;
+            } catch (WeatherApiException e) {
+                // Missing locations and cancelled losers of a race say nothing about the provider
+                if (e.getKind() != WeatherApiException.Kind.NOT_FOUND && e.getKind() != WeatherApiException.Kind.CANCELLED) {
+                    recordOutcome(true);
+                }
+                throw e;
+            }
+        }
+
+        boolean isMeasured() {
+            return latencies.getSampleCount() > 0;
+        }
+
+        synchronized void recordOutcome(boolean failed) {
+            errorRate = errorRate * (1 - ERROR_RATE_WEIGHT) + (failed ? ERROR_RATE_WEIGHT : 0);
+        }
+
+        /**
+         * Returns the median latency, grown by the error rate so that a
+         * provider failing half of its calls counts as twice as slow.
+         *
+         * @return the score, lower is better; 0 if the provider has not been called yet.
+         */
+        synchronized double getScore() {
+            long median = latencies.getPercentile(50);
+            if (median < 0) {
+                // A provider that has only failed so far goes last
+                return errorRate > 0 ? Double.MAX_VALUE : 0;
+            }
+            return (median + 1) / (1 - Math.min(errorRate, MAX_ERROR_RATE));
+        }
+    }
+}
@@ -2,43 +2,32 @@ package fi.mqanaa.weatherapp;
 
 /**
  * Represents a weather data entry for daily weather.
+ * Temperatures are stored in degrees Celsius.
  */
 public class DailyWeatherDataEntry extends WeatherDataEntry {
-    /**
-    * Minimum temperature of the day.
-    */     
-    final private String tempMin;
-    /**
-    * Maximum temperature of the day.
-    */      
-    final private String tempMax;
 
     /**
-    * Constructor for setting weather ID, date and temperature information.
-    * @param weatherId ID for the weather.
-    * @param date Date in string format.
-    * @param tempMin Minimum temperature of the day.
-    * @param tempMax Maximum temperature of the day.
+    * Constructor for a view over a daily data point of a series.
+    * @param series The daily series holding the data.
+    * @param index Position of the data point in the series.
     */      
-    public DailyWeatherDataEntry(String weatherId, String date, String tempMin, String tempMax) {
-        super(weatherId, date);
-        this.tempMin = tempMin;
-        this.tempMax = tempMax;
+    public DailyWeatherDataEntry(ForecastSeries series, int index) {
+        super(series, index);
     }
 
     /**
     * Getter for the minimum temperature of the day.
-    * @return minimum temperature of the day.
+    * @return minimum temperature of the day in degrees Celsius.
     */      
-    public String getTempMin() {
-        return tempMin;
+    public double getTempMin() {
+        return series.getTempMin(index);
     }
 
     /**
     * Getter for the maximum temperature of the day.
-    * @return maximum temperature of the day.
+    * @return maximum temperature of the day in degrees Celsius.
     */      
-    public String getTempMax() {
-        return tempMax;
+    public double getTempMax() {
+        return series.getTempMax(index);
     }
 }
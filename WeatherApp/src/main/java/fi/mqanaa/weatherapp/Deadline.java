@@ -0,0 +1,57 @@
+package fi.mqanaa.weatherapp;
+
+import java.time.Duration;
+
+/**
+ * A point in time by which an operation has to be finished.
+ * One deadline is shared by all requests belonging to the same operation,
+ * such as geocoding and the endpoint requests of a single search, so that
+ * together they never take longer than the operation's time budget.
+ */
+public final class Deadline {
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates a deadline the given time budget from now.
+     *
+     * @param budget the time the operation may take.
+     * @return the deadline.
+     */
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    /**
+     * Returns the time left until the deadline.
+     *
+     * @return the remaining time, or zero if the deadline has passed.
+     */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * Checks whether the deadline has passed.
+     *
+     * @return true if no time is left.
+     */
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Limits a timeout so that it does not extend past the deadline.
+     *
+     * @param timeout the timeout of a single step of the operation.
+     * @return the shorter of the timeout and the remaining time.
+     */
+    public Duration cap(Duration timeout) {
+        Duration remaining = remaining();
+        return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+    }
+}
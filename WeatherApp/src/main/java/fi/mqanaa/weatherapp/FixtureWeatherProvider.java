@@ -0,0 +1,164 @@
+package fi.mqanaa.weatherapp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * A provider that serves recorded API responses from files, for offline use.
+ * The fixture directory contains "geocoding.json", an array of locations in
+ * the format of the geocoding API, and one directory per location, named
+ * after the normalized location name, holding "weather.json",
+ * "forecast-hourly.json" and "forecast-daily.json" as returned by the
+ * corresponding endpoints in metric units.
+ */
+public class FixtureWeatherProvider implements WeatherProvider {
+
+    private static final String GEOCODING_FILE = "geocoding.json";
+    // Coordinates resolved by another provider may be rounded differently
+    private static final double MAX_COORDINATE_DIFFERENCE = 0.25;
+
+    private final Path directory;
+    private final List<String[]> locations = new ArrayList<>();
+    private final JsonToWeatherDataEntries entryDecoder = new JsonToWeatherDataEntries();
+
+    /**
+     * Initializes a provider serving the fixtures of a directory.
+     *
+     * @param directory the fixture directory.
+     * @throws IOException if the locations of the fixtures cannot be read.
+     */
+    public FixtureWeatherProvider(Path directory) throws IOException {
+        this.directory = directory;
+        try (Reader in = Files.newBufferedReader(directory.resolve(GEOCODING_FILE), StandardCharsets.UTF_8)) {
+            JsonArray array = JsonParser.parseReader(in).getAsJsonArray();
+            for (JsonElement element : array) {
+                JsonObject location = element.getAsJsonObject();
+                locations.add(new String[] {
+                    location.get("lat").getAsString(),
+                    location.get("lon").getAsString(),
+                    location.get("name").getAsString()
+                });
+            }
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Invalid " + GEOCODING_FILE + " in " + directory, e);
+        }
+    }
+
+    @Override
+    public String[] resolveLocation(String location, Deadline deadline) throws WeatherApiException {
+        String query = GeocodingCache.normalize(location);
+        for (String[] candidate : locations) {
+            if (GeocodingCache.normalize(candidate[2]).equals(query)) {
+                return candidate.clone();
+            }
+        }
+        throw new WeatherApiException(WeatherApiException.Kind.NOT_FOUND, "Failed to find location", null);
+    }
+
+    @Override
+    public HourlyWeatherDataEntry getCurrentWeatherEntry(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException {
+        return getCityCurrentWeatherEntry(coordinates, unitCode, deadline).getValue();
+    }
+
+    @Override
+    public Map.Entry<Long, HourlyWeatherDataEntry> getCityCurrentWeatherEntry(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException {
+        return read(coordinates, unitCode, "weather.json", entryDecoder::readCityCurrentWeatherDataObject);
+    }
+
+    @Override
+    public List<HourlyWeatherDataEntry> getHourlyEntries(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException {
+        return read(coordinates, unitCode, "forecast-hourly.json", entryDecoder::readHourlyWeatherDataObjects);
+    }
+
+    @Override
+    public List<DailyWeatherDataEntry> getDailyEntries(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException {
+        return read(coordinates, unitCode, "forecast-daily.json", entryDecoder::readDailyWeatherDataObjects);
+    }
+
+    /**
+     * Decodes a response body from a JSON stream.
+     *
+     * @param <T> the type of the decoded value.
+     */
+    @FunctionalInterface
+    private interface Decoder<T> {
+        T decode(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Reads and decodes the fixture of the location nearest to the coordinates.
+     *
+     * @param <T> the type of the decoded value.
+     * @param coordinates the latitude and longitude of the location.
+     * @param unitCode the unit system; fixtures are only available in metric units.
+     * @param fileName the name of the fixture file.
+     * @param decoder the decoder for the fixture.
+     * @return the decoded fixture.
+     * @throws WeatherApiException with kind NOT_FOUND if there is no such fixture,
+     *         or INVALID_RESPONSE if it cannot be decoded.
+     */
+    private <T> T read(String[] coordinates, String unitCode, String fileName, Decoder<T> decoder) throws WeatherApiException {
+        if (!UnitSystem.METRIC.getTempUnit().equals(unitCode)) {
+            throw new WeatherApiException(WeatherApiException.Kind.NOT_FOUND, "Fixtures are only available in metric units", null);
+        }
+        String[] location = findNearest(coordinates);
+        if (location == null) {
+            throw new WeatherApiException(WeatherApiException.Kind.NOT_FOUND, "No fixture for " + coordinates[0] + "," + coordinates[1], null);
+        }
+        Path file = directory.resolve(GeocodingCache.normalize(location[2])).resolve(fileName);
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            return decoder.decode(reader);
+        } catch (NoSuchFileException e) {
+            throw new WeatherApiException(WeatherApiException.Kind.NOT_FOUND, "No fixture " + file, e);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new WeatherApiException(WeatherApiException.Kind.INVALID_RESPONSE, "Failed to read fixture " + file, e);
+        }
+    }
+
+    /**
+     * Finds the fixture location nearest to the coordinates.
+     *
+     * @param coordinates the latitude and longitude.
+     * @return the nearest location, or null if none is close enough.
+     */
+    private String[] findNearest(String[] coordinates) {
+        double lat;
+        double lon;
+        try {
+            lat = Double.parseDouble(coordinates[0]);
+            lon = Double.parseDouble(coordinates[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        String[] nearest = null;
+        double nearestDifference = MAX_COORDINATE_DIFFERENCE;
+        for (String[] location : locations) {
+            double difference = Math.max(
+                    Math.abs(Double.parseDouble(location[0]) - lat),
+                    Math.abs(Double.parseDouble(location[1]) - lon));
+            if (difference <= nearestDifference) {
+                nearest = location;
+                nearestDifference = difference;
+            }
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,536 @@
+package fi.mqanaa.weatherapp;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Columnar store for a series of weather data points, such as an hourly or a
+ * daily forecast. Every attribute is kept in its own primitive array, indexed
+ * by the position of the data point in the series, so that a forecast of
+ * several days takes a handful of arrays instead of an object per value.
+ * {@link HourlyWeatherDataEntry} and {@link DailyWeatherDataEntry} are views
+ * over a single position of a series.
+ * Temperatures are stored in degrees Celsius and wind speeds in meters per second.
+ * Dates and hours are formatted in the local time of the location, given by
+ * the UTC offset of the series.
+ */
+public final class ForecastSeries {
+
+    // Upper bound of the size of a series read from a stream, against corrupt input
+    private static final int MAX_SERIALIZED_SIZE = 1 << 16;
+
+    private final int size;
+    private final boolean isHourly;
+    private final int utcOffsetSeconds;
+    private final long[] epochSeconds;
+    private final short[] conditionCodes;
+    private final BitSet dayTime;
+    // Hourly columns, null in a daily series
+    private final float[] temps;
+    private final float[] feelsLikes;
+    private final float[] windSpeeds;
+    private final byte[] humidities;
+    // Daily columns, null in an hourly series
+    private final float[] tempMins;
+    private final float[] tempMaxs;
+
+    private ForecastSeries(Builder builder) {
+        this.size = builder.size;
+        this.isHourly = builder.isHourly;
+        this.utcOffsetSeconds = builder.utcOffsetSeconds != null 
+                ? builder.utcOffsetSeconds 
+                : ZoneId.systemDefault().getRules().getOffset(Instant.now()).getTotalSeconds();
+        this.epochSeconds = Arrays.copyOf(builder.epochSeconds, size);
+        this.conditionCodes = Arrays.copyOf(builder.conditionCodes, size);
+        this.dayTime = (BitSet) builder.dayTime.clone();
+        this.temps = trim(builder.temps);
+        this.feelsLikes = trim(builder.feelsLikes);
+        this.windSpeeds = trim(builder.windSpeeds);
+        this.humidities = builder.humidities == null ? null : Arrays.copyOf(builder.humidities, size);
+        this.tempMins = trim(builder.tempMins);
+        this.tempMaxs = trim(builder.tempMaxs);
+    }
+
+    private float[] trim(float[] column) {
+        return column == null ? null : Arrays.copyOf(column, size);
+    }
+
+    /**
+     * Returns the number of data points in the series.
+     *
+     * @return the size of the series.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the series holds hourly data points.
+     *
+     * @return true for an hourly series, false for a daily one.
+     */
+    public boolean isHourly() {
+        return isHourly;
+    }
+
+    /**
+     * Returns the UTC offset of the location of the series.
+     *
+     * @return the UTC offset in seconds.
+     */
+    public int getUtcOffsetSeconds() {
+        return utcOffsetSeconds;
+    }
+
+    /**
+     * Returns the time of a data point.
+     *
+     * @param index the position of the data point.
+     * @return the time in seconds since the epoch.
+     */
+    public long getEpochSecond(int index) {
+        return epochSeconds[checkIndex(index)];
+    }
+
+    /**
+     * Returns the day of a data point in the local time of the location.
+     *
+     * @param index the position of the data point.
+     * @return the number of days since the epoch.
+     */
+    public long getEpochDay(int index) {
+        return WeatherFormatter.epochDay(getEpochSecond(index), utcOffsetSeconds);
+    }
+
+    /**
+     * Returns the weather condition code of a data point.
+     *
+     * @param index the position of the data point.
+     * @return the OpenWeatherMap condition code, e.g. 800 for a clear sky.
+     */
+    public int getConditionCode(int index) {
+        return conditionCodes[checkIndex(index)];
+    }
+
+    /**
+     * Checks whether a data point is in daytime.
+     *
+     * @param index the position of the data point.
+     * @return true if the data point is in daytime.
+     */
+    public boolean isDayTime(int index) {
+        return dayTime.get(checkIndex(index));
+    }
+
+    /**
+     * Returns the temperature of an hourly data point.
+     *
+     * @param index the position of the data point.
+     * @return the temperature in degrees Celsius.
+     */
+    public float getTemp(int index) {
+        checkHourly();
+        return temps[checkIndex(index)];
+    }
+
+    /**
+     * Returns the "feels like" temperature of an hourly data point.
+     *
+     * @param index the position of the data point.
+     * @return the "feels like" temperature in degrees Celsius.
+     */
+    public float getFeelsLike(int index) {
+        checkHourly();
+        return feelsLikes[checkIndex(index)];
+    }
+
+    /**
+     * Returns the wind speed of an hourly data point.
+     *
+     * @param index the position of the data point.
+     * @return the wind speed in meters per second.
+     */
+    public float getWindSpeed(int index) {
+        checkHourly();
+        return windSpeeds[checkIndex(index)];
+    }
+
+    /**
+     * Returns the relative humidity of an hourly data point.
+     *
+     * @param index the position of the data point.
+     * @return the relative humidity in percent.
+     */
+    public int getHumidity(int index) {
+        checkHourly();
+        return humidities[checkIndex(index)];
+    }
+
+    /**
+     * Returns the minimum temperature of a daily data point.
+     *
+     * @param index the position of the data point.
+     * @return the minimum temperature in degrees Celsius.
+     */
+    public float getTempMin(int index) {
+        checkDaily();
+        return tempMins[checkIndex(index)];
+    }
+
+    /**
+     * Returns the maximum temperature of a daily data point.
+     *
+     * @param index the position of the data point.
+     * @return the maximum temperature in degrees Celsius.
+     */
+    public float getTempMax(int index) {
+        checkDaily();
+        return tempMaxs[checkIndex(index)];
+    }
+
+    /**
+     * Returns the lowest temperature of the series: the lowest hourly
+     * temperature, or the lowest daily minimum.
+     *
+     * @return the lowest temperature in degrees Celsius, or NaN for an empty series.
+     */
+    public float getLowestTemp() {
+        float[] column = isHourly ? temps : tempMins;
+        float lowest = Float.NaN;
+        for (int i = 0; i < size; i++) {
+            if (!(column[i] >= lowest)) {
+                lowest = column[i];
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Returns the highest temperature of the series: the highest hourly
+     * temperature, or the highest daily maximum.
+     *
+     * @return the highest temperature in degrees Celsius, or NaN for an empty series.
+     */
+    public float getHighestTemp() {
+        float[] column = isHourly ? temps : tempMaxs;
+        float highest = Float.NaN;
+        for (int i = 0; i < size; i++) {
+            if (!(column[i] <= highest)) {
+                highest = column[i];
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Formats the date of a data point, e.g. "Mon 01.02.".
+     *
+     * @param index the position of the data point.
+     * @return the weekday and date.
+     */
+    public String formatDate(int index) {
+        return WeatherFormatter.formatDate(getEpochSecond(index), utcOffsetSeconds);
+    }
+
+    /**
+     * Formats the hour of a data point, e.g. "07".
+     *
+     * @param index the position of the data point.
+     * @return the two-digit hour.
+     */
+    public String formatHours(int index) {
+        return WeatherFormatter.formatHours(getEpochSecond(index), utcOffsetSeconds);
+    }
+
+    /**
+     * Returns the hourly data points as a list of views over the series.
+     *
+     * @return an unmodifiable list of hourly entries.
+     */
+    public List<HourlyWeatherDataEntry> hourlyEntries() {
+        checkHourly();
+        return new AbstractList<>() {
+            @Override
+            public HourlyWeatherDataEntry get(int index) {
+                return new HourlyWeatherDataEntry(ForecastSeries.this, checkIndex(index));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns the daily data points as a list of views over the series.
+     *
+     * @return an unmodifiable list of daily entries.
+     */
+    public List<DailyWeatherDataEntry> dailyEntries() {
+        checkDaily();
+        return new AbstractList<>() {
+            @Override
+            public DailyWeatherDataEntry get(int index) {
+                return new DailyWeatherDataEntry(ForecastSeries.this, checkIndex(index));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Writes the series in a compact binary form, one column after another.
+     *
+     * @param out the stream to write to.
+     * @throws IOException if the stream cannot be written.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        out.writeBoolean(isHourly);
+        out.writeInt(utcOffsetSeconds);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(epochSeconds[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeShort(conditionCodes[i]);
+        }
+        byte[] dayTimeBits = dayTime.toByteArray();
+        out.writeInt(dayTimeBits.length);
+        out.write(dayTimeBits);
+        if (isHourly) {
+            writeColumn(out, temps);
+            writeColumn(out, feelsLikes);
+            writeColumn(out, windSpeeds);
+            out.write(humidities, 0, size);
+        } else {
+            writeColumn(out, tempMins);
+            writeColumn(out, tempMaxs);
+        }
+    }
+
+    private void writeColumn(DataOutputStream out, float[] column) throws IOException {
+        for (int i = 0; i < size; i++) {
+            out.writeFloat(column[i]);
+        }
+    }
+
+    /**
+     * Reads a series written by {@link #writeTo(DataOutputStream)}.
+     *
+     * @param in the stream to read from.
+     * @return the series.
+     * @throws IOException if the stream cannot be read or does not hold a series.
+     */
+    public static ForecastSeries readFrom(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        boolean isHourly = in.readBoolean();
+        if (size < 0 || size > MAX_SERIALIZED_SIZE) {
+            throw new IOException("Invalid series size " + size);
+        }
+        Builder builder = new Builder(isHourly, size).setUtcOffset(in.readInt());
+        long[] epochSeconds = new long[size];
+        for (int i = 0; i < size; i++) {
+            epochSeconds[i] = in.readLong();
+        }
+        short[] conditionCodes = new short[size];
+        for (int i = 0; i < size; i++) {
+            conditionCodes[i] = in.readShort();
+        }
+        int dayTimeLength = in.readInt();
+        if (dayTimeLength < 0 || dayTimeLength > size / 8 + 1) {
+            throw new IOException("Invalid day/night bitset length " + dayTimeLength);
+        }
+        byte[] dayTimeBits = new byte[dayTimeLength];
+        in.readFully(dayTimeBits);
+        BitSet dayTime = BitSet.valueOf(dayTimeBits);
+
+        if (isHourly) {
+            float[] temps = readColumn(in, size);
+            float[] feelsLikes = readColumn(in, size);
+            float[] windSpeeds = readColumn(in, size);
+            byte[] humidities = new byte[size];
+            in.readFully(humidities);
+            for (int i = 0; i < size; i++) {
+                builder.addHour(epochSeconds[i], conditionCodes[i], dayTime.get(i), 
+                        temps[i], feelsLikes[i], windSpeeds[i], humidities[i]);
+            }
+        } else {
+            float[] tempMins = readColumn(in, size);
+            float[] tempMaxs = readColumn(in, size);
+            for (int i = 0; i < size; i++) {
+                builder.addDay(epochSeconds[i], conditionCodes[i], tempMins[i], tempMaxs[i]);
+            }
+        }
+        return builder.build();
+    }
+
+    private static float[] readColumn(DataInputStream in, int size) throws IOException {
+        float[] column = new float[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = in.readFloat();
+        }
+        return column;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for series of size " + size);
+        }
+        return index;
+    }
+
+    private void checkHourly() {
+        if (!isHourly) {
+            throw new IllegalStateException("Not an hourly series");
+        }
+    }
+
+    private void checkDaily() {
+        if (isHourly) {
+            throw new IllegalStateException("Not a daily series");
+        }
+    }
+
+    /**
+     * Collects the data points of a series while a response is decoded.
+     * A series holds either hourly or daily data points, not both.
+     */
+    public static final class Builder {
+        private final boolean isHourly;
+        private int size;
+        private Integer utcOffsetSeconds;
+        private long[] epochSeconds;
+        private short[] conditionCodes;
+        private final BitSet dayTime = new BitSet();
+        private float[] temps;
+        private float[] feelsLikes;
+        private float[] windSpeeds;
+        private byte[] humidities;
+        private float[] tempMins;
+        private float[] tempMaxs;
+
+        /**
+         * Initializes a builder.
+         *
+         * @param isHourly true for a series of hourly data points, false for daily ones.
+         * @param expectedSize the expected number of data points; the columns grow as needed.
+         */
+        public Builder(boolean isHourly, int expectedSize) {
+            int capacity = Math.max(1, expectedSize);
+            this.isHourly = isHourly;
+            this.epochSeconds = new long[capacity];
+            this.conditionCodes = new short[capacity];
+            if (isHourly) {
+                this.temps = new float[capacity];
+                this.feelsLikes = new float[capacity];
+                this.windSpeeds = new float[capacity];
+                this.humidities = new byte[capacity];
+            } else {
+                this.tempMins = new float[capacity];
+                this.tempMaxs = new float[capacity];
+            }
+        }
+
+        /**
+         * Sets the UTC offset of the location of the series. Without it the
+         * current offset of the system time zone is used.
+         *
+         * @param utcOffsetSeconds the UTC offset in seconds.
+         * @return this builder.
+         */
+        public Builder setUtcOffset(int utcOffsetSeconds) {
+            this.utcOffsetSeconds = utcOffsetSeconds;
+            return this;
+        }
+
+        /**
+         * Appends an hourly data point.
+         *
+         * @param epochSecond the time in seconds since the epoch.
+         * @param conditionCode the weather condition code.
+         * @param isDayTime true if the data point is in daytime.
+         * @param temp the temperature in degrees Celsius.
+         * @param feelsLike the "feels like" temperature in degrees Celsius.
+         * @param windSpeed the wind speed in meters per second.
+         * @param humidity the relative humidity in percent.
+         * @return the position of the data point.
+         */
+        public int addHour(long epochSecond, int conditionCode, boolean isDayTime,
+                double temp, double feelsLike, double windSpeed, int humidity) {
+            if (!isHourly) {
+                throw new IllegalStateException("Cannot add hours to a daily series");
+            }
+            int index = add(epochSecond, conditionCode, isDayTime);
+            temps[index] = (float) temp;
+            feelsLikes[index] = (float) feelsLike;
+            windSpeeds[index] = (float) windSpeed;
+            humidities[index] = (byte) humidity;
+            return index;
+        }
+
+        /**
+         * Appends a daily data point.
+         *
+         * @param epochSecond the time in seconds since the epoch.
+         * @param conditionCode the weather condition code.
+         * @param tempMin the minimum temperature in degrees Celsius.
+         * @param tempMax the maximum temperature in degrees Celsius.
+         * @return the position of the data point.
+         */
+        public int addDay(long epochSecond, int conditionCode, double tempMin, double tempMax) {
+            if (isHourly) {
+                throw new IllegalStateException("Cannot add days to an hourly series");
+            }
+            int index = add(epochSecond, conditionCode, true);
+            tempMins[index] = (float) tempMin;
+            tempMaxs[index] = (float) tempMax;
+            return index;
+        }
+
+        private int add(long epochSecond, int conditionCode, boolean isDayTime) {
+            if (size == epochSeconds.length) {
+                grow();
+            }
+            int index = size++;
+            epochSeconds[index] = epochSecond;
+            conditionCodes[index] = (short) conditionCode;
+            dayTime.set(index, isDayTime);
+            return index;
+        }
+
+        private void grow() {
+            int capacity = epochSeconds.length * 2;
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            conditionCodes = Arrays.copyOf(conditionCodes, capacity);
+            if (isHourly) {
+                temps = Arrays.copyOf(temps, capacity);
+                feelsLikes = Arrays.copyOf(feelsLikes, capacity);
+                windSpeeds = Arrays.copyOf(windSpeeds, capacity);
+                humidities = Arrays.copyOf(humidities, capacity);
+            } else {
+                tempMins = Arrays.copyOf(tempMins, capacity);
+                tempMaxs = Arrays.copyOf(tempMaxs, capacity);
+            }
+        }
+
+        /**
+         * Builds the series from the data points appended so far.
+         *
+         * @return the series.
+         */
+        public ForecastSeries build() {
+            return new ForecastSeries(this);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package fi.mqanaa.weatherapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A loaded forecast of a location: the resolved name of the location with
+ * the current weather and the hourly and daily series of one load.
+ * A snapshot is immutable, so a load publishes all of its data at once by
+ * replacing a single reference, and readers on any thread see either the
+ * previous or the new forecast, never a mix of both.
+ * The last snapshot is stored in a compact binary file so that it can be
+ * shown at startup before, or without, a network round trip. The file holds
+ * the decoded series, not the API responses, so reading it needs no JSON
+ * parsing.
+ */
+public final class ForecastSnapshot {
+
+    private static final int MAGIC = 0x57534e50;
+    private static final int VERSION = 1;
+
+    private final String location;
+    private final Instant fetchedAt;
+    private final HourlyWeatherDataEntry currentWeather;
+    private final ForecastSeries hourlySeries;
+    private final ForecastSeries dailySeries;
+    private final Map<Long, List<HourlyWeatherDataEntry>> hourlyWeathersByDay;
+    private final boolean restored;
+
+    /**
+     * Initializes a snapshot.
+     *
+     * @param location the resolved name of the location.
+     * @param fetchedAt when the forecast was fetched.
+     * @param currentWeather the current weather.
+     * @param hourlySeries the hourly forecast.
+     * @param dailySeries the daily forecast.
+     */
+    public ForecastSnapshot(String location, Instant fetchedAt, HourlyWeatherDataEntry currentWeather,
+            ForecastSeries hourlySeries, ForecastSeries dailySeries) {
+        this(location, fetchedAt, currentWeather, hourlySeries, dailySeries, false);
+    }
+
+    private ForecastSnapshot(String location, Instant fetchedAt, HourlyWeatherDataEntry currentWeather,
+            ForecastSeries hourlySeries, ForecastSeries dailySeries, boolean restored) {
+        this.location = location;
+        this.fetchedAt = fetchedAt;
+        this.currentWeather = currentWeather;
+        this.hourlySeries = hourlySeries;
+        this.dailySeries = dailySeries;
+        this.hourlyWeathersByDay = groupByDay(hourlySeries.hourlyEntries());
+        this.restored = restored;
+    }
+
+    /**
+     * Splits hourly entries into the slices of each day. The entries are in
+     * chronological order, so each day is a contiguous range of the list.
+     *
+     * @param hours the hourly entries in chronological order.
+     * @return views over the hourly entries of each day, by epoch day.
+     */
+    private static Map<Long, List<HourlyWeatherDataEntry>> groupByDay(List<HourlyWeatherDataEntry> hours) {
+        Map<Long, List<HourlyWeatherDataEntry>> byDay = new HashMap<>();
+        int start = 0;
+        for (int i = 1; i <= hours.size(); i++) {
+            long day = hours.get(start).getEpochDay();
+            if (i == hours.size() || hours.get(i).getEpochDay() != day) {
+                byDay.put(day, Collections.unmodifiableList(hours.subList(start, i)));
+                start = i;
+            }
+        }
+        return Collections.unmodifiableMap(byDay);
+    }
+
+    /**
+     * Returns the series a list of entries is a view over.
+     *
+     * @param entries entries of a single series, as returned by the decoder.
+     * @param isHourly true for hourly entries, false for daily ones.
+     * @return the series of the entries, or an empty series if there are none.
+     */
+    public static ForecastSeries seriesOf(List<? extends WeatherDataEntry> entries, boolean isHourly) {
+        if (entries.isEmpty()) {
+            return new ForecastSeries.Builder(isHourly, 0).build();
+        }
+        ForecastSeries series = entries.get(0).getSeries();
+        if (series.size() != entries.size() || series.isHourly() != isHourly) {
+            throw new IllegalArgumentException("Entries are not a whole series");
+        }
+        return series;
+    }
+
+    /**
+     * Reads a snapshot from a file.
+     *
+     * @param file the snapshot file.
+     * @return the snapshot.
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    public static ForecastSnapshot read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a forecast snapshot: " + file);
+            }
+            String location = in.readUTF();
+            Instant fetchedAt = Instant.ofEpochMilli(in.readLong());
+            ForecastSeries currentSeries = ForecastSeries.readFrom(in);
+            ForecastSeries hourlySeries = ForecastSeries.readFrom(in);
+            ForecastSeries dailySeries = ForecastSeries.readFrom(in);
+            if (currentSeries.size() != 1 || !currentSeries.isHourly()) {
+                throw new IOException("Invalid current weather in " + file);
+            }
+            return new ForecastSnapshot(location, fetchedAt, currentSeries.hourlyEntries().get(0),
+                    hourlySeries, dailySeries, true);
+        } catch (IllegalStateException e) {
+            throw new IOException("Invalid forecast snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the snapshot to a file. The file is replaced only once the
+     * snapshot has been written completely and forced to the disk, so a
+     * crash leaves either the old or the new snapshot.
+     *
+     * @param file the snapshot file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(location);
+            out.writeLong(fetchedAt.toEpochMilli());
+            currentSeriesOf(currentWeather).writeTo(out);
+            hourlySeries.writeTo(out);
+            dailySeries.writeTo(out);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // The current weather may be a view over a larger series, e.g. of the group endpoint
+    private static ForecastSeries currentSeriesOf(HourlyWeatherDataEntry current) {
+        ForecastSeries.Builder builder = new ForecastSeries.Builder(true, 1)
+                .setUtcOffset(current.getSeries().getUtcOffsetSeconds());
+        builder.addHour(current.getEpochSecond(), current.getConditionCode(), current.isDayTime(),
+                current.getTemp(), current.getFeelsLike(), current.getWindSpeed(), current.getHumidity());
+        return builder.build();
+    }
+
+    /**
+     * Returns the resolved name of the location.
+     *
+     * @return the location.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns when the forecast was fetched.
+     *
+     * @return the fetch time.
+     */
+    public Instant getFetchedAt() {
+        return fetchedAt;
+    }
+
+    /**
+     * Returns the current weather.
+     *
+     * @return the current weather entry.
+     */
+    public HourlyWeatherDataEntry getCurrentWeather() {
+        return currentWeather;
+    }
+
+    /**
+     * Returns the hourly forecast.
+     *
+     * @return the hourly entries.
+     */
+    public List<HourlyWeatherDataEntry> getHourlyWeathers() {
+        return hourlySeries.hourlyEntries();
+    }
+
+    /**
+     * Returns the hourly forecast of a day.
+     *
+     * @param epochDay the day, as given by {@link WeatherDataEntry#getEpochDay()}.
+     * @return the hourly entries of the day, empty if there are none.
+     */
+    public List<HourlyWeatherDataEntry> getHourlyWeathers(long epochDay) {
+        return hourlyWeathersByDay.getOrDefault(epochDay, List.of());
+    }
+
+    /**
+     * Returns the daily forecast.
+     *
+     * @return the daily entries.
+     */
+    public List<DailyWeatherDataEntry> getDailyWeathers() {
+        return dailySeries.dailyEntries();
+    }
+
+    /**
+     * Checks whether the snapshot was read from the snapshot file of an
+     * earlier session rather than loaded in this session.
+     *
+     * @return true if the snapshot has been read from a file.
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+}
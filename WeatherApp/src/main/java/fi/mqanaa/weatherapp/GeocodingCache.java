@@ -0,0 +1,200 @@
+package fi.mqanaa.weatherapp;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Caches geocoding results so that a location only has to be resolved once.
+ * Successful lookups are kept in a bounded LRU and persisted to disk between
+ * sessions. Names the geocoding API could not resolve are remembered for a
+ * limited time so that repeated typos do not cost a round trip each.
+ */
+public class GeocodingCache {
+
+    private static final int DEFAULT_CAPACITY = 512;
+    private static final long DEFAULT_NEGATIVE_TTL_MILLIS = 10 * 60 * 1000L;
+
+    private final JsonFileHandler fileHandler;
+    private final String cacheFile;
+    private final int capacity;
+    private final long negativeTtlMillis;
+    private final LinkedHashMap<String, String[]> entries;
+    private final Map<String, Long> misses;
+    private volatile Consumer<String> resolvedListener = name -> { };
+
+    /**
+     * Initializes a cache with the default capacity and negative cache TTL.
+     *
+     * @param fileHandler the file handler used to persist the cache.
+     * @param cacheFile the name or path of the file the cache is stored in.
+     */
+    public GeocodingCache(JsonFileHandler fileHandler, String cacheFile) {
+        this(fileHandler, cacheFile, DEFAULT_CAPACITY, DEFAULT_NEGATIVE_TTL_MILLIS);
+    }
+
+    /**
+     * Initializes a cache.
+     *
+     * @param fileHandler the file handler used to persist the cache.
+     * @param cacheFile the name or path of the file the cache is stored in.
+     * @param capacity the maximum number of resolved locations to keep.
+     * @param negativeTtlMillis how long a failed lookup is remembered, in milliseconds.
+     */
+    public GeocodingCache(JsonFileHandler fileHandler, String cacheFile, int capacity, long negativeTtlMillis) {
+        this.fileHandler = fileHandler;
+        this.cacheFile = cacheFile;
+        this.capacity = capacity;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+                return size() > GeocodingCache.this.capacity;
+            }
+        };
+        this.misses = new HashMap<>();
+    }
+
+    /**
+     * Normalizes a location query so that differently typed forms of the
+     * same name share a cache entry.
+     *
+     * @param query the location query as typed.
+     * @return the normalized cache key.
+     */
+    public static String normalize(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the cached lookup result for a query.
+     *
+     * @param query the location query.
+     * @return an array containing latitude, longitude and the resolved name, or null if not cached.
+     */
+    public synchronized String[] get(String query) {
+        String[] location = entries.get(normalize(query));
+        return location == null ? null : location.clone();
+    }
+
+    /**
+     * Checks whether a query recently failed to resolve.
+     *
+     * @param query the location query.
+     * @return true if the query is in the negative cache and has not expired.
+     */
+    public synchronized boolean isKnownMiss(String query) {
+        String key = normalize(query);
+        Long expiresAt = misses.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt < System.currentTimeMillis()) {
+            misses.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stores a resolved location. The location is also stored under its
+     * resolved name, so that looking up a name returned by the API is a hit.
+     *
+     * @param query the location query.
+     * @param lat the latitude of the location.
+     * @param lon the longitude of the location.
+     * @param name the name of the location as returned by the API.
+     */
+    public synchronized void put(String query, String lat, String lon, String name) {
+        String[] location = {lat, lon, name};
+        entries.put(normalize(query), location);
+        entries.put(normalize(name), location);
+        misses.remove(normalize(query));
+        resolvedListener.accept(name);
+    }
+
+    /**
+     * Returns the names of all cached locations, as returned by the API.
+     *
+     * @return a copy of the resolved names.
+     */
+    public synchronized Set<String> getResolvedNames() {
+        Set<String> names = new HashSet<>();
+        for (String[] location : entries.values()) {
+            names.add(location[2]);
+        }
+        return names;
+    }
+
+    /**
+     * Sets a listener called with the resolved name of every location
+     * stored from now on.
+     *
+     * @param listener the listener, called on the thread storing the location.
+     */
+    public void setResolvedListener(Consumer<String> listener) {
+        this.resolvedListener = listener;
+    }
+
+    /**
+     * Records that a query could not be resolved.
+     *
+     * @param query the location query.
+     */
+    public synchronized void putMiss(String query) {
+        misses.put(normalize(query), System.currentTimeMillis() + negativeTtlMillis);
+    }
+
+    /**
+     * Loads previously saved lookups from the cache file.
+     * A missing or malformed file leaves the cache empty. There is no file
+     * on the first run, so only an unreadable or corrupt one is reported.
+     */
+    public synchronized void load() {
+        try {
+            JsonElement root = JsonParser.parseString(fileHandler.readJsonFromFile(cacheFile));
+            if (!root.isJsonArray()) {
+                return;
+            }
+            for (JsonElement element : root.getAsJsonArray()) {
+                JsonObject entry = element.getAsJsonObject();
+                entries.put(entry.get("query").getAsString(), new String[] {
+                    entry.get("lat").getAsString(),
+                    entry.get("lon").getAsString(),
+                    entry.get("name").getAsString()
+                });
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing has been cached yet
+        } catch (IOException | JsonSyntaxException | IllegalStateException | NullPointerException e) {
+            System.err.println("Could not load geocoding cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the cached lookups to the cache file, least recently used first.
+     */
+    public synchronized void save() {
+        JsonArray root = new JsonArray();
+        for (Map.Entry<String, String[]> entry : entries.entrySet()) {
+            JsonObject item = new JsonObject();
+            item.addProperty("query", entry.getKey());
+            item.addProperty("lat", entry.getValue()[0]);
+            item.addProperty("lon", entry.getValue()[1]);
+            item.addProperty("name", entry.getValue()[2]);
+            root.add(item);
+        }
+        fileHandler.writeJsonToFile(cacheFile, root.toString());
+    }
+}
@@ -0,0 +1,67 @@
+package fi.mqanaa.weatherapp;
+
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.GridPane;
+
+/**
+ * A row of the hourly forecast list. The list only creates as many cells
+ * as fit on the screen and reuses them while scrolling, so the number of
+ * nodes does not grow with the length of the forecast.
+ */
+public class HourlyForecastCell extends ListCell<HourlyWeatherDataEntry> {
+
+    /**
+     * Height of a row in pixels.
+     */
+    public static final double HEIGHT = 56;
+
+    private final ObservableValue<UnitSystem> units;
+    private final GridPane grid = new GridPane();
+    private final Label timeLabel = new Label();
+    private final ImageView weatherIcon = new ImageView();
+    private final Label tempLabel = new Label();
+    private final Label windLabel = new Label();
+    private final Label humidityLabel = new Label();
+
+    /**
+     * Initializes a cell.
+     *
+     * @param units the unit system the hours are displayed in.
+     */
+    public HourlyForecastCell(ObservableValue<UnitSystem> units) {
+        this.units = units;
+        grid.setHgap(10);
+        grid.getStyleClass().add("centered-spaced");
+        grid.add(timeLabel, 0, 0);
+        grid.add(weatherIcon, 1, 0);
+        grid.add(tempLabel, 2, 0);
+        grid.add(windLabel, 3, 0);
+        grid.add(humidityLabel, 4, 0);
+    }
+
+    @Override
+    protected void updateItem(HourlyWeatherDataEntry hour, boolean empty) {
+        super.updateItem(hour, empty);
+        if (empty || hour == null) {
+            setGraphic(null);
+            return;
+        }
+        UnitSystem unitSystem = units.getValue();
+        timeLabel.setText(hour.getHours());
+        weatherIcon.setImage(IconCache.getIcon(hour.getConditionCode(), hour.isDayTime(), IconCache.SMALL_SIZE));
+        tempLabel.setText(unitSystem.formatTemp(hour.getTemp()) + unitSystem.getTempUnit());
+        windLabel.setText("Wind: " + unitSystem.formatWindSpeed(hour.getWindSpeed()) + " " + unitSystem.getWsUnit());
+        humidityLabel.setText("Humidity: " + hour.getHumidity() + " %");
+
+        boolean isOdd = getIndex() % 2 != 0;
+        if (isOdd && !grid.getStyleClass().contains("odd-row")) {
+            grid.getStyleClass().add("odd-row");
+        } else if (!isOdd) {
+            grid.getStyleClass().remove("odd-row");
+        }
+        setGraphic(grid);
+    }
+}
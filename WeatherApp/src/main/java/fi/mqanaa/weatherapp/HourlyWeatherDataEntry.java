@@ -2,54 +2,18 @@ package fi.mqanaa.weatherapp;
 
 /**
  * Represents a weather data entry for hourly weather.
+ * Temperatures are stored in degrees Celsius and wind speeds in meters per
+ * second; see {@link UnitSystem} for converting them for display.
  */
 public class HourlyWeatherDataEntry extends WeatherDataEntry {
-    /**
-    * The current hour.
-    */     
-    final private String hours;   
-    /**
-    * Temperature of this hour.
-    */       
-    final private String temp;
-    /**
-    * "Feels like" temperature of this hour.
-    */       
-    final private String feelsLike;
-    /**
-    * Wind speed in this hour.
-    */   
-    final private String windSpeed;
-    /**
-    * Boolean value expressing if this hour is daytime.
-    */       
-    final private boolean isDayTime;
-    /**
-    * Humidity in this hour.
-    */   
-    final private String humidity;
 
     /**
-    * Constructor for setting weather info about hourly data entry.
-    * @param weatherId ID for the weather.
-    * @param date Date in string format.
-    * @param hours The current hour.
-    * @param temp Temperature of this hour.
-    * @param feelsLike "Feels like" temperature of this hour.
-    * @param windSpeed Wind speed in this hour.
-    * @param isDayTime Boolean value expressing if this hour is daytime.
-    * @param humidity Humidity in this hour.
+    * Constructor for a view over an hourly data point of a series.
+    * @param series The hourly series holding the data.
+    * @param index Position of the data point in the series.
     */     
-    public HourlyWeatherDataEntry(String weatherId, String date, String hours, 
-            String temp, String feelsLike, String windSpeed, 
-            boolean isDayTime, String humidity) {
-        super(weatherId, date);
-        this.hours = hours;        
-        this.temp = temp;
-        this.feelsLike = feelsLike;
-        this.windSpeed = windSpeed;
-        this.isDayTime = isDayTime;
-        this.humidity = humidity;
+    public HourlyWeatherDataEntry(ForecastSeries series, int index) {
+        super(series, index);
     }
 
     /**
@@ -57,31 +21,31 @@ public class HourlyWeatherDataEntry extends WeatherDataEntry {
     * @return the represented hour.
     */        
     public String getHours() {
-        return hours;
+        return series.formatHours(index);
     }
     
     /**
     * Getter for the hour's temperature.
-    * @return temperature of the hour.
+    * @return temperature of the hour in degrees Celsius.
     */  
-    public String getTemp() {
-        return temp;
+    public double getTemp() {
+        return series.getTemp(index);
     }
 
     /**
     * Getter for the hour's "feels like" temperature.
-    * @return "feels like" temperature of the hour.
+    * @return "feels like" temperature of the hour in degrees Celsius.
     */      
-    public String getFeelsLike() {
-        return feelsLike;
+    public double getFeelsLike() {
+        return series.getFeelsLike(index);
     }
 
     /**
     * Getter for the hour's wind speed.
-    * @return wind speed of the hour.
+    * @return wind speed of the hour in meters per second.
     */          
-    public String getWindSpeed() {
-        return windSpeed;
+    public double getWindSpeed() {
+        return series.getWindSpeed(index);
     }
 
     /**
@@ -89,14 +53,14 @@ public class HourlyWeatherDataEntry extends WeatherDataEntry {
     * @return true if the represented hour is daytime, otherwise false.
     */          
     public boolean isDayTime() {
-        return isDayTime;
+        return series.isDayTime(index);
     }
 
     /**
     * Getter for the hour's humidity.
-    * @return humidity of the hour.
+    * @return relative humidity of the hour, in percent.
     */  
-    public String getHumidity() {
-        return humidity;
+    public int getHumidity() {
+        return series.getHumidity(index);
     }
-}
\ No newline at end of file
+}
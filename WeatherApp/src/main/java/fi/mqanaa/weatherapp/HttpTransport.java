@@ -0,0 +1,330 @@
+package fi.mqanaa.weatherapp;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Performs HTTP GET requests over one shared, pooled HttpClient.
+ * Connections are kept alive and reused between requests to the same host,
+ * HTTP/2 is used where the server supports it, and responses are requested
+ * gzip compressed.
+ * Optionally, requests are hedged: if a request has not been answered after
+ * a delay close to the recently observed 95th percentile latency, a
+ * duplicate is sent and whichever answers first is used.
+ * The response body must be read within the same timeout as the response
+ * headers; a body that stalls past it is closed and reading it fails.
+ */
+public class HttpTransport {
+
+    /**
+     * Default time allowed for establishing a connection.
+     */
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    /**
+     * Default time allowed for a whole request, from sending it to reading the whole response body.
+     */
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    /**
+     * Default hedging delay, used until enough latencies have been observed.
+     */
+    public static final Duration DEFAULT_HEDGE_DELAY = Duration.ofMillis(800);
+
+    /**
+     * Status code of a conditional request whose cached response is still valid.
+     */
+    public static final int HTTP_NOT_MODIFIED = 304;
+
+    private static final int LATENCY_WINDOW = 128;
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final double HEDGE_PERCENTILE = 95;
+
+    // Closes response bodies that are not read before their deadline; daemon so it never keeps the JVM alive
+    private static final ScheduledExecutorService BODY_TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "http-body-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final boolean hedging;
+    private final Duration minHedgeDelay;
+    private final LatencyTracker latencies = new LatencyTracker(LATENCY_WINDOW);
+
+    /**
+     * Initializes a transport with the default timeouts and no hedging.
+     */
+    public HttpTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Initializes a transport with the given timeouts and no hedging.
+     *
+     * @param connectTimeout the time allowed for establishing a connection.
+     * @param requestTimeout the time allowed for a request to receive its response.
+     */
+    public HttpTransport(Duration connectTimeout, Duration requestTimeout) {
+        this(connectTimeout, requestTimeout, false, DEFAULT_HEDGE_DELAY);
+    }
+
+    /**
+     * Initializes a transport.
+     *
+     * @param connectTimeout the time allowed for establishing a connection.
+     * @param requestTimeout the time allowed for a request to receive its response.
+     * @param hedging whether slow requests are hedged with a duplicate request.
+     * @param minHedgeDelay the shortest time to wait before sending a duplicate request;
+     *        also the delay used until enough latencies have been observed.
+     */
+    public HttpTransport(Duration connectTimeout, Duration requestTimeout, boolean hedging, Duration minHedgeDelay) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.requestTimeout = requestTimeout;
+        this.hedging = hedging;
+        this.minHedgeDelay = minHedgeDelay;
+    }
+
+    /**
+     * Sends a GET request and returns the response body as a stream.
+     * A gzip encoded body is decompressed transparently.
+     *
+     * @param url the URL to request.
+     * @return the status code and the decoded body stream, which the caller must close.
+     * @throws IOException if the request fails or times out.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public Response get(String url) throws IOException, InterruptedException {
+        return get(url, Map.of(), Deadline.after(requestTimeout));
+    }
+
+    /**
+     * Sends a GET request with additional headers, such as conditional
+     * request validators, and returns the response body as a stream.
+     *
+     * @param url the URL to request.
+     * @param headers the additional request headers.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the status code, headers and the decoded body stream, which the caller must close.
+     * @throws HttpTimeoutException if the request times out or the deadline passes.
+     * @throws IOException if the request fails.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public Response get(String url, Map<String, String> headers, Deadline deadline) throws IOException, InterruptedException {
+        if (deadline.isExpired()) {
+            throw new HttpTimeoutException("Deadline passed before the request was sent");
+        }
+        Duration timeout = deadline.cap(requestTimeout);
+        Deadline requestDeadline = Deadline.after(timeout);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET();
+        headers.forEach(builder::header);
+        HttpRequest request = builder.build();
+
+        CompletableFuture<HttpResponse<InputStream>> pending = send(request);
+        HttpResponse<InputStream> response;
+        try {
+            response = pending.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            pending.cancel(true);
+            throw new HttpTimeoutException("Request timed out");
+        } catch (InterruptedException e) {
+            pending.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+
+        InputStream body = new DeadlineInputStream(response.body(), requestDeadline);
+        // A "304 Not Modified" answer has no body to decompress, even if it repeats the encoding header
+        boolean gzipped = response.statusCode() != HTTP_NOT_MODIFIED
+                && response.headers().firstValue("Content-Encoding")
+                        .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                        .orElse(false);
+        if (gzipped) {
+            body = new GZIPInputStream(body);
+        }
+        return new Response(response.statusCode(), response.headers(), body);
+    }
+
+    /**
+     * Sends a request, hedging it with a duplicate if hedging is enabled and
+     * the first attempt is slow. The first attempt to receive a response wins;
+     * the others are cancelled and their bodies closed.
+     *
+     * @param request the request to send.
+     * @return a future completed with the winning response.
+     */
+    private CompletableFuture<HttpResponse<InputStream>> send(HttpRequest request) {
+        CompletableFuture<HttpResponse<InputStream>> result = new CompletableFuture<>();
+        List<CompletableFuture<HttpResponse<InputStream>>> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger(1);
+        startAttempt(request, result, attempts, running);
+
+        if (hedging) {
+            CompletableFuture.delayedExecutor(getHedgeDelay().toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+                if (!result.isDone()) {
+                    running.incrementAndGet();
+                    startAttempt(request, result, attempts, running);
+                }
+            });
+        }
+        result.whenComplete((response, failure) -> attempts.forEach(attempt -> attempt.cancel(true)));
+        return result;
+    }
+
+    /**
+     * Sends one attempt of a request and completes the shared result with
+     * its response, unless another attempt was faster.
+     *
+     * @param request the request to send.
+     * @param result the shared result of all attempts.
+     * @param attempts the attempts started so far.
+     * @param running the number of attempts that have not failed.
+     */
+    private void startAttempt(HttpRequest request, CompletableFuture<HttpResponse<InputStream>> result,
+            List<CompletableFuture<HttpResponse<InputStream>>> attempts, AtomicInteger running) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> attempt =
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        attempts.add(attempt);
+        // A hedge started just as the result completed was missed by its cancelling of the attempts
+        if (result.isDone()) {
+            attempt.cancel(true);
+        }
+        attempt.whenComplete((response, failure) -> {
+            if (failure == null) {
+                latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                if (!result.complete(response)) {
+                    closeQuietly(response.body());
+                }
+            } else if (running.decrementAndGet() == 0) {
+                result.completeExceptionally(failure);
+            }
+        });
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // The losing response is discarded anyway
+        }
+    }
+
+    /**
+     * Returns how long to wait before hedging a request: the observed 95th
+     * percentile latency, but no less than the configured minimum delay.
+     *
+     * @return the hedging delay.
+     */
+    public Duration getHedgeDelay() {
+        if (latencies.getSampleCount() < MIN_HEDGE_SAMPLES) {
+            return minHedgeDelay;
+        }
+        long p95 = latencies.getPercentile(HEDGE_PERCENTILE);
+        return p95 > minHedgeDelay.toMillis() ? Duration.ofMillis(p95) : minHedgeDelay;
+    }
+
+    /**
+     * A response body that is closed when its deadline passes, so that a
+     * server stalling in the middle of the body cannot block the reading
+     * thread forever. Reads after the deadline fail with a timeout.
+     */
+    private static final class DeadlineInputStream extends FilterInputStream {
+        private final ScheduledFuture<?> timer;
+        private volatile boolean expired;
+
+        private DeadlineInputStream(InputStream body, Deadline deadline) {
+            super(body);
+            this.timer = BODY_TIMER.schedule(this::expire, deadline.remaining().toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private void expire() {
+            expired = true;
+            closeQuietly(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkExpired();
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw timeoutOr(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            checkExpired();
+            try {
+                return super.read(buffer, offset, length);
+            } catch (IOException e) {
+                throw timeoutOr(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            timer.cancel(false);
+            super.close();
+        }
+
+        private void checkExpired() throws HttpTimeoutException {
+            if (expired) {
+                throw new HttpTimeoutException("Response body timed out");
+            }
+        }
+
+        private IOException timeoutOr(IOException e) {
+            if (!expired) {
+                return e;
+            }
+            HttpTimeoutException timeout = new HttpTimeoutException("Response body timed out");
+            timeout.initCause(e);
+            return timeout;
+        }
+    }
+
+    /**
+     * The status code, headers and body of an HTTP response.
+     *
+     * @param statusCode the HTTP status code.
+     * @param headers the response headers.
+     * @param body the decoded response body.
+     */
+    public record Response(int statusCode, HttpHeaders headers, InputStream body) {
+    }
+}
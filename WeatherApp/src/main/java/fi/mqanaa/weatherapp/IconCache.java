@@ -0,0 +1,85 @@
+package fi.mqanaa.weatherapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.scene.image.Image;
+
+/**
+ * Cache of decoded weather icons.
+ * Every icon is decoded once per size it is displayed in, already scaled to
+ * that size, and the same Image is shared by all the views showing it.
+ * The icons of {@link WeatherConditions} can be preloaded on a background
+ * thread so that the first render does not decode anything either.
+ */
+public final class IconCache {
+
+    /**
+     * Size of the icons of the forecast rows and tiles, in pixels.
+     */
+    public static final int SMALL_SIZE = 50;
+    /**
+     * Size of the icon of the current weather, in pixels.
+     */
+    public static final int LARGE_SIZE = 90;
+    /**
+     * Size of the icons of the favorites dashboard, in pixels.
+     */
+    public static final int FAVORITE_SIZE = 32;
+
+    private static final Map<String, Image> IMAGES = new ConcurrentHashMap<>();
+
+    private IconCache() {
+    }
+
+    /**
+     * Returns the icon of a weather condition.
+     *
+     * @param conditionCode the condition code.
+     * @param isDayTime true for the daytime icon, false for the nighttime icon.
+     * @param size the width and height of the icon in pixels.
+     * @return the shared decoded icon.
+     */
+    public static Image getIcon(int conditionCode, boolean isDayTime, int size) {
+        return getImage(WeatherConditions.getIconPath(conditionCode, isDayTime), size);
+    }
+
+    /**
+     * Returns an image resource decoded at the given size.
+     *
+     * @param path the resource path of the image.
+     * @param size the width and height of the image in pixels.
+     * @return the shared decoded image.
+     */
+    public static Image getImage(String path, int size) {
+        return IMAGES.computeIfAbsent(path + "@" + size, key -> decode(path, size));
+    }
+
+    /**
+     * Decodes all the weather icons in the sizes they are displayed in on a
+     * background thread.
+     */
+    public static void preload() {
+        Thread thread = new Thread(() -> {
+            for (String path : WeatherConditions.getIconPaths()) {
+                getImage(path, SMALL_SIZE);
+                getImage(path, LARGE_SIZE);
+                getImage(path, FAVORITE_SIZE);
+            }
+        }, "icon-preload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static Image decode(String path, int size) {
+        try (InputStream in = IconCache.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Icon not found: " + path);
+            }
+            return new Image(in, size, size, true, true);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read icon " + path, e);
+        }
+    }
+}
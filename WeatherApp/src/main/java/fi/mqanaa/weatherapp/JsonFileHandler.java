@@ -2,14 +2,17 @@ package fi.mqanaa.weatherapp;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Handles reading and writing JSON data to and from files.
  * This class provides methods for reading JSON content from a file 
- * at program launch and writing JSON content to a file at program close.
+ * and writing JSON content to a file.
  */
 public class JsonFileHandler {
 
@@ -26,14 +29,23 @@ public class JsonFileHandler {
 
     /**
      * Writes the specified JSON data to a file.
+     * The data is written to a temporary file, forced to the disk and then
+     * moved over the file, so a crash during the write leaves either the
+     * old or the new content, never a partly written file.
      * 
      * @param fileName the name or path of the file to write to.
      * @param jsonData the JSON string to write to the file.
      * @return true if the data was successfully written, false if an error occurred.
      */
     public boolean writeJsonToFile(String fileName, String jsonData) {
+        Path file = Path.of(fileName);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
         try {
-            Files.writeString(Path.of(fileName), jsonData, StandardCharsets.UTF_8);
+            Files.writeString(temp, jsonData, StandardCharsets.UTF_8);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
             return true;
         } catch (FileNotFoundException e) {
             System.err.println("File not found: " + e.getMessage());
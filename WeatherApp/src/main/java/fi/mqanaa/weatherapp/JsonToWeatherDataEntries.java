@@ -4,23 +4,32 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
-import java.util.ArrayList;
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.time.format.TextStyle;
-import java.util.Locale;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Converts JSON data into WeatherDataEntry objects.
+ * The data is expected in metric units and stored as is; conversion and
+ * formatting for display is left to {@link UnitSystem}.
+ * Entries can be created either from a JSON string or decoded directly from
+ * a streaming JsonReader, which avoids building an intermediate JSON tree.
+ * The decoded values are collected into a {@link ForecastSeries}, and the
+ * returned entries are views over it. The UTC offset of the location given
+ * in the response is kept with the series, so dates and hours are formatted
+ * in the local time of the location.
  */
 public class JsonToWeatherDataEntries {
     
+    // Initial capacities of the series; hourly forecasts cover four days
+    private static final int HOURLY_CAPACITY = 96;
+    private static final int DAILY_CAPACITY = 16;
+
     private final Gson gson = new Gson();
     
-        /**
+    /**
      * Creates a current weather entry from JSON data.
      * 
      * @param jsonData the JSON string containing current weather data.
@@ -29,7 +38,12 @@ public class JsonToWeatherDataEntries {
      */
     public HourlyWeatherDataEntry createCurrentWeatherDataObject(String jsonData) throws JsonSyntaxException {
         JsonObject currentData = parseJsonObject(jsonData);
-        return parseHourlyWeatherData(currentData, true);
+        ForecastSeries.Builder series = new ForecastSeries.Builder(true, 1);
+        if (currentData.has("timezone")) {
+            series.setUtcOffset(currentData.get("timezone").getAsInt());
+        }
+        parseHourlyWeatherData(currentData, true, series);
+        return series.build().hourlyEntries().get(0);
     }
     
     /**
@@ -39,15 +53,16 @@ public class JsonToWeatherDataEntries {
      * @return a list of HourlyWeatherDataEntry objects.
      * @throws JsonSyntaxException if the JSON format is invalid.
      */
-    public ArrayList<HourlyWeatherDataEntry> createHourlyWeatherDataObjects(String jsonData) throws JsonSyntaxException {
+    public List<HourlyWeatherDataEntry> createHourlyWeatherDataObjects(String jsonData) throws JsonSyntaxException {
         JsonObject allData = parseJsonObject(jsonData);
         JsonArray weatherDataEntries = allData.getAsJsonArray("list");
-        ArrayList<HourlyWeatherDataEntry> hourlyData = new ArrayList<>();
+        ForecastSeries.Builder series = new ForecastSeries.Builder(true, weatherDataEntries.size());
+        setUtcOffsetFromCity(allData, series);
         
         for (var entry : weatherDataEntries) {
-            hourlyData.add(parseHourlyWeatherData(entry.getAsJsonObject(), false));
+            parseHourlyWeatherData(entry.getAsJsonObject(), false, series);
         }
-        return hourlyData;
+        return series.build().hourlyEntries();
     }    
     
     /**
@@ -57,24 +72,280 @@ public class JsonToWeatherDataEntries {
      * @return a list of DailyWeatherDataEntry objects.
      * @throws JsonSyntaxException if the JSON format is invalid.
      */
-    public ArrayList<DailyWeatherDataEntry> createDailyWeatherDataObjects(String jsonData) throws JsonSyntaxException {
+    public List<DailyWeatherDataEntry> createDailyWeatherDataObjects(String jsonData) throws JsonSyntaxException {
         JsonObject allData = parseJsonObject(jsonData);
         JsonArray weatherDataEntries = allData.getAsJsonArray("list");
-        ArrayList<DailyWeatherDataEntry> dailyData = new ArrayList<>();
+        ForecastSeries.Builder series = new ForecastSeries.Builder(false, weatherDataEntries.size());
+        setUtcOffsetFromCity(allData, series);
         
         for (var entry : weatherDataEntries) {
-            dailyData.add(parseDailyWeatherData(entry.getAsJsonObject()));
+            parseDailyWeatherData(entry.getAsJsonObject(), series);
         }
-        return dailyData;
+        return series.build().dailyEntries();
+    }
+    
+    /**
+     * Decodes a current weather entry from a JSON stream.
+     * 
+     * @param reader the reader positioned at the start of the current weather object.
+     * @return a populated HourlyWeatherDataEntry object.
+     * @throws IOException if the stream cannot be read or is malformed.
+     */
+    public HourlyWeatherDataEntry readCurrentWeatherDataObject(JsonReader reader) throws IOException {
+        return readCityCurrentWeatherDataObject(reader).getValue();
+    }
+
+    /**
+     * Decodes a current weather entry together with the ID of the city it
+     * belongs to from a JSON stream.
+     * 
+     * @param reader the reader positioned at the start of the current weather object.
+     * @return the city ID mapped to a populated HourlyWeatherDataEntry object.
+     * @throws IOException if the stream cannot be read or is malformed.
+     */
+    public Map.Entry<Long, HourlyWeatherDataEntry> readCityCurrentWeatherDataObject(JsonReader reader) throws IOException {
+        ForecastSeries.Builder series = new ForecastSeries.Builder(true, 1);
+        long cityId = readCityWeatherData(reader, true, series);
+        return Map.entry(cityId, series.build().hourlyEntries().get(0));
+    }
+
+    /**
+     * Decodes the current weather of several cities, as returned by the
+     * multi-city group endpoint, from a JSON stream.
+     * 
+     * @param reader the reader positioned at the start of the group response object.
+     * @return the current weather entries by city ID.
+     * @throws IOException if the stream cannot be read or is malformed.
+     */
+    public Map<Long, HourlyWeatherDataEntry> readCurrentWeatherGroup(JsonReader reader) throws IOException {
+        Map<Long, HourlyWeatherDataEntry> groupData = new HashMap<>();
+        // The cities may be in different time zones, so each gets a series of its own
+        readList(reader, null, () -> {
+            Map.Entry<Long, HourlyWeatherDataEntry> cityWeather = readCityCurrentWeatherDataObject(reader);
+            groupData.put(cityWeather.getKey(), cityWeather.getValue());
+        });
+        return groupData;
+    }
+
+    /**
+     * Decodes a list of hourly weather data entries from a JSON stream.
+     * 
+     * @param reader the reader positioned at the start of the hourly forecast object.
+     * @return a list of HourlyWeatherDataEntry objects.
+     * @throws IOException if the stream cannot be read or is malformed.
+     */
+    public List<HourlyWeatherDataEntry> readHourlyWeatherDataObjects(JsonReader reader) throws IOException {
+        return readHourlySeries(reader).hourlyEntries();
+    }
+
+    /**
+     * Decodes an hourly forecast series from a JSON stream.
+     * 
+     * @param reader the reader positioned at the start of the hourly forecast object.
+     * @return the hourly series.
+     * @throws IOException if the stream cannot be read or is malformed.
+     */
+    public ForecastSeries readHourlySeries(JsonReader reader) throws IOException {
+        ForecastSeries.Builder series = new ForecastSeries.Builder(true, HOURLY_CAPACITY);
+        readList(reader, series, () -> readCityWeatherData(reader, false, series));
+        return series.build();
+    }
+
+    /**
+     * Decodes a list of daily weather data entries from a JSON stream.
+     * 
+     * @param reader the reader positioned at the start of the daily forecast object.
+     * @return a list of DailyWeatherDataEntry objects.
+     * @throws IOException if the stream cannot be read or is malformed.
+     */
+    public List<DailyWeatherDataEntry> readDailyWeatherDataObjects(JsonReader reader) throws IOException {
+        return readDailySeries(reader).dailyEntries();
+    }
+
+    /**
+     * Decodes a daily forecast series from a JSON stream.
+     * 
+     * @param reader the reader positioned at the start of the daily forecast object.
+     * @return the daily series.
+     * @throws IOException if the stream cannot be read or is malformed.
+     */
+    public ForecastSeries readDailySeries(JsonReader reader) throws IOException {
+        ForecastSeries.Builder series = new ForecastSeries.Builder(false, DAILY_CAPACITY);
+        readList(reader, series, () -> readDailyWeatherData(reader, series));
+        return series.build();
     }
     
     // Helper Methods
 
+    /**
+     * Reads one element of a JSON array.
+     */
+    @FunctionalInterface
+    private interface ElementReader {
+        void read() throws IOException;
+    }
+
+    private void readList(JsonReader reader, ForecastSeries.Builder series, ElementReader elementReader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "list" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        elementReader.read();
+                    }
+                    reader.endArray();
+                }
+                case "city" -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("timezone") && series != null) {
+                            series.setUtcOffset(reader.nextInt());
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private long readCityWeatherData(JsonReader reader, boolean isCurrent, ForecastSeries.Builder series) throws IOException {
+        long cityId = 0;
+        int weatherId = 0;
+        int humidity = 0;
+        String partOfDay = "";
+        double temp = 0;
+        double feelsLike = 0;
+        double windSpeed = 0;
+        long timestamp = 0;
+        long sunrise = 0;
+        long sunset = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> cityId = reader.nextLong();
+                case "dt" -> timestamp = reader.nextLong();
+                case "timezone" -> series.setUtcOffset(reader.nextInt());
+                case "weather" -> weatherId = readFirstWeatherId(reader);
+                case "main" -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "temp" -> temp = reader.nextDouble();
+                            case "feels_like" -> feelsLike = reader.nextDouble();
+                            case "humidity" -> humidity = reader.nextInt();
+                            default -> reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                case "wind" -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("speed")) {
+                            windSpeed = reader.nextDouble();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                case "sys" -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "sunrise" -> sunrise = reader.nextLong();
+                            case "sunset" -> sunset = reader.nextLong();
+                            case "pod" -> partOfDay = reader.nextString();
+                            case "timezone" -> series.setUtcOffset(reader.nextInt());
+                            default -> reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        boolean isDayTime = isCurrent 
+            ? checkDaytimeFromUnixTimestamp(timestamp, sunrise, sunset) 
+            : partOfDay.equals("d");
+        series.addHour(timestamp, weatherId, isDayTime, temp, feelsLike, windSpeed, humidity);
+        return cityId;
+    }
+
+    private void readDailyWeatherData(JsonReader reader, ForecastSeries.Builder series) throws IOException {
+        int weatherId = 0;
+        double tempMin = 0;
+        double tempMax = 0;
+        long timestamp = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "dt" -> timestamp = reader.nextLong();
+                case "weather" -> weatherId = readFirstWeatherId(reader);
+                case "temp" -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "min" -> tempMin = reader.nextDouble();
+                            case "max" -> tempMax = reader.nextDouble();
+                            default -> reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        series.addDay(timestamp, weatherId, tempMin, tempMax);
+    }
+
+    private int readFirstWeatherId(JsonReader reader) throws IOException {
+        int weatherId = 0;
+        boolean first = true;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (!first) {
+                reader.skipValue();
+                continue;
+            }
+            first = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("id")) {
+                    weatherId = reader.nextInt();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+        return weatherId;
+    }
+
+    private void setUtcOffsetFromCity(JsonObject data, ForecastSeries.Builder series) {
+        JsonObject cityField = data.getAsJsonObject("city");
+        if (cityField != null && cityField.has("timezone")) {
+            series.setUtcOffset(cityField.get("timezone").getAsInt());
+        }
+    }
+
     private JsonObject parseJsonObject(String jsonData) {
         return gson.fromJson(jsonData, JsonObject.class);
     }
 
-    private HourlyWeatherDataEntry parseHourlyWeatherData(JsonObject data, boolean isCurrent) {
+    private void parseHourlyWeatherData(JsonObject data, boolean isCurrent, ForecastSeries.Builder series) {
         JsonObject mainField = data.getAsJsonObject("main");
         JsonObject weatherField = data.getAsJsonArray("weather").get(0).getAsJsonObject();
         JsonObject windField = data.getAsJsonObject("wind");
@@ -85,25 +356,15 @@ public class JsonToWeatherDataEntries {
         double windSpeed = windField.get("speed").getAsDouble();
         long timestamp = data.get("dt").getAsLong();
         
-        String date = formatUnixTimestampToWeekdayDate(timestamp);
-        String hours = getHoursFromUnixTimestamp(timestamp);
         boolean isDayTime = isCurrent 
             ? checkDaytimeFromUnixTimestamp(timestamp, sysField.get("sunrise").getAsLong(), sysField.get("sunset").getAsLong()) 
             : data.getAsJsonObject("sys").get("pod").getAsString().equals("d");
 
-        return new HourlyWeatherDataEntry(
-            weatherField.get("id").getAsString(), 
-            date, 
-            hours, 
-            formatTempToString(temp), 
-            formatTempToString(feelsLike), 
-            formatWindSpeed(windSpeed), 
-            isDayTime, 
-            mainField.get("humidity").getAsString() + " %"
-        );
+        series.addHour(timestamp, weatherField.get("id").getAsInt(), isDayTime, temp, feelsLike, 
+                windSpeed, mainField.get("humidity").getAsInt());
     }
 
-    private DailyWeatherDataEntry parseDailyWeatherData(JsonObject data) {
+    private void parseDailyWeatherData(JsonObject data, ForecastSeries.Builder series) {
         JsonObject tempField = data.getAsJsonObject("temp");
         JsonObject weatherField = data.getAsJsonArray("weather").get(0).getAsJsonObject();
 
@@ -111,34 +372,10 @@ public class JsonToWeatherDataEntries {
         double tempMax = tempField.get("max").getAsDouble();
         long timestamp = data.get("dt").getAsLong();
 
-        return new DailyWeatherDataEntry(
-            weatherField.get("id").getAsString(), 
-            formatUnixTimestampToWeekdayDate(timestamp), 
-            formatTempToString(tempMin), 
-            formatTempToString(tempMax)
-        );
-    }
-
-    private String formatTempToString(double temp) {
-        String formattedTemp = String.format("%.0f°", temp);
-        return formattedTemp.startsWith("-") ? formattedTemp : (temp == 0 ? " " : "+") + formattedTemp;
-    }
-
-    private String getHoursFromUnixTimestamp(long timestamp) {
-        return String.format("%02d", LocalDateTime.ofInstant(Instant.ofEpochSecond(timestamp), ZoneId.systemDefault()).getHour());
-    }
-
-    private String formatUnixTimestampToWeekdayDate(long timestamp) {
-        LocalDate date = Instant.ofEpochSecond(timestamp).atZone(ZoneId.systemDefault()).toLocalDate();
-        String weekday = date.getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.US);
-        return weekday + " " + date.format(DateTimeFormatter.ofPattern("dd.MM."));
+        series.addDay(timestamp, weatherField.get("id").getAsInt(), tempMin, tempMax);
     }
 
     private boolean checkDaytimeFromUnixTimestamp(long current, long sunrise, long sunset) {
         return current > sunrise && current < sunset;
     }
-
-    private String formatWindSpeed(double windSpeed) {
-        return String.format("%.2f", windSpeed);
-    }
 }
\ No newline at end of file
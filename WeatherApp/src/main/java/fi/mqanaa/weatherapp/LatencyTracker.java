@@ -0,0 +1,58 @@
+package fi.mqanaa.weatherapp;
+
+import java.util.Arrays;
+
+/**
+ * Keeps a window of recent request latencies and derives percentiles from it.
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    /**
+     * Initializes a tracker.
+     *
+     * @param windowSize the number of most recent samples to keep.
+     */
+    public LatencyTracker(int windowSize) {
+        this.samples = new long[windowSize];
+    }
+
+    /**
+     * Records the latency of a request.
+     *
+     * @param millis the latency in milliseconds.
+     */
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * Returns the number of samples in the window.
+     *
+     * @return the sample count.
+     */
+    public synchronized int getSampleCount() {
+        return count;
+    }
+
+    /**
+     * Returns a percentile of the recorded latencies.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the latency in milliseconds, or -1 if nothing has been recorded.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+}
@@ -5,84 +5,350 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 /**
  * Manages the program state, including weather data, location, units, favorites,
  * and search history. Supports loading and saving state to a file.
+ * Changes to the favorites and the search history are recorded in a journal
+ * as they happen, so they survive a crash; the state file is rewritten when
+ * the journal is compacted and when the program closes.
+ * Each load of weather data builds one immutable {@link ForecastSnapshot} and
+ * publishes it through a single atomic reference, so loads on background
+ * threads never leave the forecast of one location half replaced by another.
  */
 public class ProgramState {
  
     
     private static final String PROGRAM_STATE_FILE = "programState.json";
+    private static final String PROGRAM_STATE_JOURNAL = "programState.journal";
+    private static final String FORECAST_SNAPSHOT_FILE = "forecastSnapshot.bin";
     private static final String NO_HISTORY = "No search history";
-    private static final int MAX_HISTORY_SIZE = 25;
-    private static final int MAX_FAVORITES_SIZE = 5;
+    private static final int MAX_FAVORITES_SIZE = 500;
+    // Time budget of a whole search, from resolving the location to the last forecast
+    private static final Duration SEARCH_BUDGET = Duration.ofSeconds(20);
+    private static final Duration FAVORITES_BUDGET = Duration.ofSeconds(60);
+    private static final int MAX_PARALLEL_FAVORITE_FETCHES = 4;
+
+    // Shared by all instances; daemon threads so pending fetches never keep the JVM alive
+    private static final ExecutorService FETCH_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "weather-fetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Bounds how many favorites requests are sent to the API at the same time
+    private static final ExecutorService FAVORITES_EXECUTOR = Executors.newFixedThreadPool(MAX_PARALLEL_FAVORITE_FETCHES, runnable -> {
+        Thread thread = new Thread(runnable, "favorites-fetch");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private final TreeSet<String> favorites;
-    private final LinkedList<String> history;
+    private final Map<String, Long> favoriteCityIds;
+    private final SearchHistory history;
+    private final CityIndex cityIndex;
     private final JsonFileHandler fileHandler;
-    private final WeatherAPI weatherAPI;
-
-    private String currentLocation;
-    private HourlyWeatherDataEntry currentWeather;
-    private List<HourlyWeatherDataEntry> hourlyWeathers;
-    private List<DailyWeatherDataEntry> dailyWeathers;
-    private String units;
-    private String currentTempUnit;
-    private String currentWsUnit;
+    private final Path programStateFile;
+    private final Path forecastSnapshotFile;
+    private final StateJournal journal;
+    private final WeatherProvider weatherProvider;
+
+    // The location selected for display, empty while searching
+    private volatile String currentLocation;
+    private final AtomicReference<ForecastSnapshot> forecast;
+    private volatile UnitSystem units;
+    private volatile Map<String, HourlyWeatherDataEntry> favoriteWeathers;
+    private volatile boolean groupEndpointAvailable;
     
     /**
      * Initializes a new ProgramState instance with default values.
      *
      * @param fileHandler the file handler for reading and writing JSON data
-     * @param weatherAPI the API interface for fetching weather data
+     * @param weatherProvider the provider for fetching weather data
+     */
+    public ProgramState(JsonFileHandler fileHandler, WeatherProvider weatherProvider) {
+        this(fileHandler, weatherProvider, SearchHistory.DEFAULT_DEPTH);
+    }
+
+    /**
+     * Initializes a new ProgramState instance with default values and the
+     * given search history depth.
+     *
+     * @param fileHandler the file handler for reading and writing JSON data
+     * @param weatherProvider the provider for fetching weather data
+     * @param historyDepth the maximum number of cities kept in the search history
+     */
+    public ProgramState(JsonFileHandler fileHandler, WeatherProvider weatherProvider, int historyDepth) {
+        this(fileHandler, weatherProvider, historyDepth, Path.of(""));
+    }
+
+    /**
+     * Initializes a new ProgramState instance that keeps its files in the
+     * given directory.
+     *
+     * @param fileHandler the file handler for reading and writing JSON data
+     * @param weatherProvider the provider for fetching weather data
+     * @param historyDepth the maximum number of cities kept in the search history
+     * @param stateDirectory the directory of the state, journal and forecast snapshot files
      */
-    public ProgramState(JsonFileHandler fileHandler, WeatherAPI weatherAPI) {
+    ProgramState(JsonFileHandler fileHandler, WeatherProvider weatherProvider, int historyDepth, Path stateDirectory) {
+        this.programStateFile = stateDirectory.resolve(PROGRAM_STATE_FILE);
+        this.forecastSnapshotFile = stateDirectory.resolve(FORECAST_SNAPSHOT_FILE);
         this.favorites = new TreeSet<>();
-        this.history = new LinkedList<>();
+        this.favoriteCityIds = new ConcurrentHashMap<>();
+        this.favoriteWeathers = Map.of();
+        this.groupEndpointAvailable = true;
+        this.history = new SearchHistory(historyDepth);
+        this.cityIndex = new CityIndex();
+        this.history.setEvictionListener(cityIndex::removeSearched);
         this.fileHandler = fileHandler;
-        this.weatherAPI = weatherAPI;
+        this.journal = new StateJournal(stateDirectory.resolve(PROGRAM_STATE_JOURNAL), this::writeProgramState);
+        this.weatherProvider = weatherProvider;
         this.currentLocation = "";
-        this.hourlyWeathers = new ArrayList<>();
-        this.dailyWeathers = new ArrayList<>();
-        this.units = "metric";
-        this.currentTempUnit = "C";
-        this.currentWsUnit = "m/s";
+        this.forecast = new AtomicReference<>();
+        this.units = UnitSystem.METRIC;
     }
  
     /**
-     * Loads weather data from the API.
+     * Loads weather data of the current location from the API.
      *
      * @throws Exception if weather data cannot be loaded
      */
     public void loadWeatherData() throws Exception {
+        loadWeatherData(currentLocation);
+    }
+
+    /**
+     * Loads weather data of a location from the API, publishes it as the
+     * shown forecast and selects the location.
+     *
+     * @param location the name of the location
+     * @return the loaded forecast
+     * @throws Exception if weather data cannot be loaded
+     */
+    public ForecastSnapshot loadWeatherData(String location) throws Exception {
+        ForecastSnapshot loaded;
         try {
-            fetchWeatherDataFromAPI();
-            addToSearchHistory(currentLocation);
+            loaded = fetchWeatherDataFromAPI(location);
+            addToSearchHistory(loaded.getLocation());
         } catch (Exception e) {
             throw new Exception("Failed to load weather data", e);
         }
+        synchronized (this) {
+            forecast.set(loaded);
+            currentLocation = loaded.getLocation();
+        }
+        saveForecastSnapshot(loaded);
+        return loaded;
+    }
+
+    /**
+     * Loads fresh weather data of the shown location from the API. The data
+     * is published only if the same location is still selected when it
+     * arrives; if the user has opened the search or selected another
+     * location meanwhile, the result is dropped and the selection is kept.
+     * The search history is left as it is, since the user did not search.
+     *
+     * @return true if fresh data was published, false if it was dropped or nothing is shown
+     * @throws Exception if weather data cannot be loaded
+     */
+    public boolean refreshWeatherData() throws Exception {
+        String location = currentLocation;
+        if (location.isEmpty()) {
+            return false;
+        }
+        ForecastSnapshot loaded;
+        try {
+            loaded = fetchWeatherDataFromAPI(location);
+        } catch (Exception e) {
+            throw new Exception("Failed to refresh weather data", e);
+        }
+        synchronized (this) {
+            if (!location.equals(currentLocation)) {
+                return false;
+            }
+            forecast.set(loaded);
+            currentLocation = loaded.getLocation();
+        }
+        saveForecastSnapshot(loaded);
+        return true;
+    }
+
+    /**
+     * Shows the forecast of the last successful load, as saved in the
+     * forecast snapshot file, until fresh data is loaded.
+     *
+     * @return true if a snapshot was loaded, false if there is none or it cannot be read
+     */
+    public boolean loadForecastSnapshot() {
+        Path file = forecastSnapshotFile;
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try {
+            ForecastSnapshot snapshot = ForecastSnapshot.read(file);
+            forecast.set(snapshot);
+            currentLocation = snapshot.getLocation();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error reading " + FORECAST_SNAPSHOT_FILE + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Saves a loaded forecast to the forecast snapshot file.
+     *
+     * @param loaded the forecast to save
+     */
+    private void saveForecastSnapshot(ForecastSnapshot loaded) {
+        try {
+            loaded.write(forecastSnapshotFile);
+        } catch (IOException e) {
+            System.err.println("Error when trying to write file " + FORECAST_SNAPSHOT_FILE + ": " + e.getMessage());
+        }
     }
     
     /**
-     * Fetches weather data from the API and updates the program state.
+     * Fetches weather data of a location from the API.
+     * The location is resolved once, after which the hourly, daily and
+     * current weather requests run in parallel. The lookup and the requests
+     * share one deadline, so a slow lookup leaves less time for the rest.
      *
-     * @throws Exception if an error occurs while fetching data
+     * @param location the name of the location
+     * @return the forecast of the location, not yet published
+     * @throws WeatherApiException if an error occurs while fetching data
      */
-    private void fetchWeatherDataFromAPI() throws Exception {
-        JsonToWeatherDataEntries jtwde = new JsonToWeatherDataEntries();
+    private ForecastSnapshot fetchWeatherDataFromAPI(String location) throws WeatherApiException {
+        Deadline deadline = Deadline.after(SEARCH_BUDGET);
+        String[] coordinates = weatherProvider.resolveLocation(location, deadline);
+        String resolvedLocation = coordinates[2];
+        // Data is always fetched in metric units and converted for display
+        String unitCode = UnitSystem.METRIC.getTempUnit();
 
-        String jsonHourlyData = weatherAPI.getForecast(currentLocation, currentTempUnit);
-        String jsonDailyData = weatherAPI.getDailyData(currentLocation, currentTempUnit);
-        String jsonCurrentData = weatherAPI.getCurrentWeather(currentLocation, currentTempUnit);
+        CompletableFuture<List<HourlyWeatherDataEntry>> hourlyRequest = 
+                fetchAsync(() -> weatherProvider.getHourlyEntries(coordinates, unitCode, deadline));
+        CompletableFuture<List<DailyWeatherDataEntry>> dailyRequest = 
+                fetchAsync(() -> weatherProvider.getDailyEntries(coordinates, unitCode, deadline));
+        CompletableFuture<HourlyWeatherDataEntry> currentRequest = 
+                fetchAsync(() -> weatherProvider.getCurrentWeatherEntry(coordinates, unitCode, deadline));
+        awaitAll(deadline, hourlyRequest, dailyRequest, currentRequest);
 
-        currentLocation = weatherAPI.getCurrentLocationName();
-        hourlyWeathers = jtwde.createHourlyWeatherDataObjects(jsonHourlyData);
-        dailyWeathers = jtwde.createDailyWeatherDataObjects(jsonDailyData);
-        currentWeather = jtwde.createCurrentWeatherDataObject(jsonCurrentData);
+        return new ForecastSnapshot(resolvedLocation, Instant.now(), currentRequest.join(),
+                ForecastSnapshot.seriesOf(hourlyRequest.join(), true),
+                ForecastSnapshot.seriesOf(dailyRequest.join(), false));
     }
- 
+
+    /**
+     * A weather API request that can be run on the fetch executor.
+     *
+     * @param <T> the type of the response
+     */
+    @FunctionalInterface
+    private interface Fetch<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * Starts a weather API request on the fetch executor.
+     *
+     * @param <T> the type of the response
+     * @param fetch the request to run
+     * @return a future completed with the response
+     */
+    private static <T> CompletableFuture<T> fetchAsync(Fetch<T> fetch) {
+        return fetchAsync(fetch, FETCH_EXECUTOR);
+    }
+
+    /**
+     * Starts a weather API request on the given executor.
+     * Cancelling the returned future interrupts the thread running the
+     * request, which aborts a request waiting for the network, and removes
+     * a request that has not started yet from the executor.
+     *
+     * @param <T> the type of the response
+     * @param fetch the request to run
+     * @param executor the executor to run the request on
+     * @return a future completed with the response
+     */
+    private static <T> CompletableFuture<T> fetchAsync(Fetch<T> fetch, ExecutorService executor) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Unlike a CompletableFuture, the task interrupts its thread when cancelled
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(fetch.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((response, failure) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Waits for all requests to complete within the deadline. As soon as one
+     * request fails or the deadline passes, the remaining ones are cancelled.
+     *
+     * @param deadline the deadline all requests together must meet
+     * @param requests the requests to wait for
+     * @throws WeatherApiException the failure of the first failed request, or a timeout
+     */
+    private static void awaitAll(Deadline deadline, CompletableFuture<?>... requests) throws WeatherApiException {
+        CompletableFuture<Void> all = CompletableFuture.allOf(requests);
+        for (var request : requests) {
+            request.whenComplete((result, failure) -> {
+                if (failure != null) {
+                    all.completeExceptionally(failure);
+                }
+            });
+        }
+        try {
+            all.get(deadline.remaining().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            cancelAll(requests);
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof WeatherApiException) {
+                throw (WeatherApiException) cause;
+            }
+            throw new WeatherApiException(WeatherApiException.Kind.NETWORK, "Failed to read weather data.", cause);
+        } catch (TimeoutException | CancellationException e) {
+            cancelAll(requests);
+            throw new WeatherApiException(WeatherApiException.Kind.TIMEOUT, "Weather data request timed out", e);
+        } catch (InterruptedException e) {
+            cancelAll(requests);
+            Thread.currentThread().interrupt();
+            throw new WeatherApiException(WeatherApiException.Kind.CANCELLED, "Weather data request was cancelled", e);
+        }
+    }
+
+    private static void cancelAll(CompletableFuture<?>... requests) {
+        for (var request : requests) {
+            request.cancel(true);
+        }
+    }
+
     /**
      * Returns the current location.
      *
@@ -97,7 +363,7 @@ public class ProgramState {
      *
      * @param newLocation the new location to set.
      */    
-    public void setCurrentLocation(String newLocation) {
+    public synchronized void setCurrentLocation(String newLocation) {
         currentLocation = newLocation;
     }
     
@@ -107,6 +373,15 @@ public class ProgramState {
      * @return the units.
      */
     public String getUnits() {
+        return units.getName();
+    }
+
+    /**
+     * Returns the unit system used for displaying weather data.
+     *
+     * @return the unit system.
+     */
+    public UnitSystem getUnitSystem() {
         return units;
     }
     
@@ -116,7 +391,7 @@ public class ProgramState {
      * @return the temperature units.
      */    
     public String getTempUnits() {
-        return currentTempUnit;
+        return units.getTempUnit();
     }
 
     /**
@@ -125,40 +400,57 @@ public class ProgramState {
      * @return the wind speed units.
      */    
     public String getWsUnits() {
-        return currentWsUnit;
+        return units.getWsUnit();
     }
 
     /**
      * Toggles the unit system between metric and imperial.
+     * The loaded weather data is kept in metric units, so it does not need
+     * to be fetched again; only the way it is displayed changes.
      */
     public void changeUnits() {
-        if (units.equals("metric")) {
-            setUnits("imperial", "F", "mph");
-        } else {
-            setUnits("metric", "C", "m/s");
-        }
+        units = units.toggle();
     }
     
     /**
-     * Updates the unit system and related unit values.
+     * Returns the shown forecast. All data of one forecast should be read
+     * from the same snapshot, as a load may publish a new one at any time.
      *
-     * @param units the unit system
-     * @param tempUnit the temperature unit
-     * @param wsUnit the wind speed unit
+     * @return the latest published forecast, or null if none has been loaded.
      */
-    private void setUnits(String units, String tempUnit, String wsUnit) {
-        this.units = units;
-        this.currentTempUnit = tempUnit;
-        this.currentWsUnit = wsUnit;
-    }    
-    
+    public ForecastSnapshot getForecast() {
+        return forecast.get();
+    }
+
      /**
      * Returns the current weather data entry.
      *
-     * @return the current weather data entry.
+     * @return the current weather data entry, or null if no weather data has been loaded.
      */
     public HourlyWeatherDataEntry getCurrentWeather() {
-        return currentWeather;
+        ForecastSnapshot shown = forecast.get();
+        return shown == null ? null : shown.getCurrentWeather();
+    }
+
+    /**
+     * Returns when the shown weather data was fetched.
+     *
+     * @return the fetch time, or null if no weather data has been loaded.
+     */
+    public Instant getFetchedAt() {
+        ForecastSnapshot shown = forecast.get();
+        return shown == null ? null : shown.getFetchedAt();
+    }
+
+    /**
+     * Checks whether the shown weather data comes from the forecast snapshot
+     * of an earlier session rather than from a load in this session.
+     *
+     * @return true if the weather data has been loaded from the snapshot.
+     */
+    public boolean isFromSnapshot() {
+        ForecastSnapshot shown = forecast.get();
+        return shown != null && shown.isRestored();
     }
 
     /**
@@ -167,7 +459,8 @@ public class ProgramState {
      * @return the list of daily weather data entries.
      */    
     public List<DailyWeatherDataEntry> getDailyWeathers() {
-        return dailyWeathers;
+        ForecastSnapshot shown = forecast.get();
+        return shown == null ? List.of() : shown.getDailyWeathers();
     }
 
     /**
@@ -176,11 +469,25 @@ public class ProgramState {
      * @return the list of hourly weather data entries.
      */    
     public List<HourlyWeatherDataEntry> getHourlyWeathers() {
-        return hourlyWeathers;
+        ForecastSnapshot shown = forecast.get();
+        return shown == null ? List.of() : shown.getHourlyWeathers();
+    }
+
+    /**
+     * Returns the hourly weather data entries of a day.
+     *
+     * @param epochDay the day, as given by {@link WeatherDataEntry#getEpochDay()}.
+     * @return the hourly weather data entries of the day, empty if there are none.
+     */    
+    public List<HourlyWeatherDataEntry> getHourlyWeathers(long epochDay) {
+        ForecastSnapshot shown = forecast.get();
+        return shown == null ? List.of() : shown.getHourlyWeathers(epochDay);
     }
 
     /**
      * Adds a city to the favorites list.
+     * Only the name of the city is resolved; its weather is fetched by
+     * {@link #refreshFavorites()}.
      *
      * @param city the city to add to favorites
      * @return true if the city was added successfully
@@ -192,11 +499,14 @@ public class ProgramState {
         }
 
         try {
-            weatherAPI.getCurrentWeather(city, currentTempUnit);
-            String currentLocationFromApi = weatherAPI.getCurrentLocationName();
-            if (!favorites.add(currentLocationFromApi)) {
-                throw new Exception("Location already in favorites");
+            String currentLocationFromApi = weatherProvider.resolveLocation(city, Deadline.after(SEARCH_BUDGET))[2];
+            synchronized (this) {
+                if (!favorites.add(currentLocationFromApi)) {
+                    throw new Exception("Location already in favorites");
+                }
+                journal.append(record("addFavorite", currentLocationFromApi));
             }
+            cityIndex.addFavorite(currentLocationFromApi);
             return true;
         } catch (Exception e) {
             throw new Exception("Location not found", e);
@@ -209,8 +519,159 @@ public class ProgramState {
      * @param city the city to remove.
      * @return true if the city was removed successfully.
      */    
-    public boolean removeFavorite(String city) {
-        return favorites.remove(city);
+    public synchronized boolean removeFavorite(String city) {
+        favoriteCityIds.remove(city);
+        cityIndex.removeFavorite(city);
+        if (!favorites.remove(city)) {
+            return false;
+        }
+        journal.append(record("removeFavorite", city));
+        return true;
+    }
+
+    /**
+     * Fetches the current weather of all favorites in as few requests as possible.
+     * Favorites whose city ID is known are fetched in batches through the
+     * multi-city group endpoint. The others, and all favorites if the API key
+     * has no access to that endpoint, are fetched one by one, a few at a time.
+     * Favorites that fail to load are left out of the result.
+     *
+     * @return the current weather of each favorite that could be fetched
+     * @throws Exception if the refresh is interrupted
+     */
+    public Map<String, HourlyWeatherDataEntry> refreshFavorites() throws Exception {
+        return refreshFavorites((city, weather) -> { });
+    }
+
+    /**
+     * Fetches the current weather of all favorites, reporting each favorite
+     * as soon as its weather arrives instead of when all have arrived.
+     * Favorites that fail to load keep the weather of an earlier refresh in
+     * {@link #getFavoriteWeathers()}.
+     *
+     * @param onResult called with each favorite and its weather, on the fetching thread
+     * @return the current weather of each favorite that could be fetched
+     * @throws Exception if the refresh is interrupted
+     * @see #refreshFavorites()
+     */
+    public Map<String, HourlyWeatherDataEntry> refreshFavorites(BiConsumer<String, HourlyWeatherDataEntry> onResult) 
+            throws Exception {
+        Map<String, HourlyWeatherDataEntry> refreshed = new ConcurrentHashMap<>();
+        BiConsumer<String, HourlyWeatherDataEntry> collect = (city, weather) -> {
+            refreshed.put(city, weather);
+            onResult.accept(city, weather);
+        };
+        Map<Long, String> batchedCities = new HashMap<>();
+        List<String> unbatchedCities = new ArrayList<>();
+        for (String city : getFavorites()) {
+            Long cityId = favoriteCityIds.get(city);
+            if (groupEndpointAvailable && cityId != null) {
+                batchedCities.put(cityId, city);
+            } else {
+                unbatchedCities.add(city);
+            }
+        }
+
+        Deadline deadline = Deadline.after(FAVORITES_BUDGET);
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        List<Long> cityIds = new ArrayList<>(batchedCities.keySet());
+        for (int i = 0; i < cityIds.size(); i += WeatherProvider.MAX_GROUP_SIZE) {
+            List<Long> batch = cityIds.subList(i, Math.min(i + WeatherProvider.MAX_GROUP_SIZE, cityIds.size()));
+            requests.add(fetchAsync(() -> fetchFavoriteBatch(batch, batchedCities, collect, deadline), FAVORITES_EXECUTOR));
+        }
+        for (String city : unbatchedCities) {
+            requests.add(fetchAsync(() -> fetchFavorite(city, collect, deadline), FAVORITES_EXECUTOR));
+        }
+
+        try {
+            CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new))
+                    .get(deadline.remaining().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Keep whatever arrived in time
+            requests.forEach(request -> request.cancel(true));
+        }
+
+        TreeSet<String> currentFavorites = getFavorites();
+        Map<String, HourlyWeatherDataEntry> weathers = new TreeMap<>(favoriteWeathers);
+        weathers.putAll(refreshed);
+        weathers.keySet().retainAll(currentFavorites);
+        favoriteWeathers = Collections.unmodifiableMap(weathers);
+        return Collections.unmodifiableMap(new TreeMap<>(refreshed));
+    }
+
+    /**
+     * Fetches the current weather of a batch of favorites with one group request.
+     * If the request fails, the favorites are fetched one by one instead.
+     *
+     * @param batch the city IDs of the favorites
+     * @param citiesById the favorite names by city ID
+     * @param onResult called with each favorite and its weather
+     * @param deadline the deadline of the whole refresh
+     * @return null
+     */
+    private Void fetchFavoriteBatch(List<Long> batch, Map<Long, String> citiesById, 
+            BiConsumer<String, HourlyWeatherDataEntry> onResult, Deadline deadline) {
+        try {
+            Map<Long, HourlyWeatherDataEntry> weathers = 
+                    weatherProvider.getCurrentWeatherEntries(batch, UnitSystem.METRIC.getTempUnit(), deadline);
+            weathers.forEach((cityId, weather) -> {
+                String city = citiesById.get(cityId);
+                if (city != null) {
+                    onResult.accept(city, weather);
+                }
+            });
+        } catch (WeatherApiException e) {
+            if (e.getKind() == WeatherApiException.Kind.CANCELLED || deadline.isExpired()) {
+                // The refresh has given up on this batch; there is no time left to fetch it one by one
+                return null;
+            }
+            System.err.println("Group request failed, fetching favorites one by one: " + e.getMessage());
+            // Only a rejected request says the API key cannot use the endpoint; a timeout says nothing about it
+            if (e.getKind() == WeatherApiException.Kind.UNAUTHORIZED || e.getKind() == WeatherApiException.Kind.HTTP_ERROR) {
+                groupEndpointAvailable = false;
+            }
+            for (Long cityId : batch) {
+                fetchFavorite(citiesById.get(cityId), onResult, deadline);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fetches the current weather of a single favorite and remembers its
+     * city ID, so that later refreshes can batch it.
+     *
+     * @param city the name of the favorite
+     * @param onResult called with the favorite and its weather
+     * @param deadline the deadline of the whole refresh
+     * @return null
+     */
+    private Void fetchFavorite(String city, BiConsumer<String, HourlyWeatherDataEntry> onResult, Deadline deadline) {
+        try {
+            String[] coordinates = weatherProvider.resolveLocation(city, deadline);
+            Map.Entry<Long, HourlyWeatherDataEntry> cityWeather = 
+                    weatherProvider.getCityCurrentWeatherEntry(coordinates, UnitSystem.METRIC.getTempUnit(), deadline);
+            Long cityId = cityWeather.getKey();
+            if (cityId != null && !cityId.equals(favoriteCityIds.put(city, cityId))) {
+                JsonObject record = record("favoriteCityId", city);
+                record.addProperty("id", cityId);
+                journal.append(record);
+            }
+            onResult.accept(city, cityWeather.getValue());
+        } catch (Exception e) {
+            System.err.println("Failed to refresh favorite " + city + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Returns the current weather of the favorites as of the latest refresh
+     * that loaded each of them.
+     *
+     * @return the current weather by favorite name.
+     */
+    public Map<String, HourlyWeatherDataEntry> getFavoriteWeathers() {
+        return favoriteWeathers;
     }
 
     /**
@@ -224,16 +685,55 @@ public class ProgramState {
     
     /**
      * Helper method to add a city to the search history.
-     * Removes duplicates and caps history size.
+     * A city already in the history moves to the front, and the least
+     * recently searched city is dropped when the history is full.
      *
      * @param city the city to add
      */
-    private void addCityToHistory(String city) {
-        history.remove(city);
-        history.addFirst(city);
-        if (history.size() > MAX_HISTORY_SIZE) {
-            history.removeLast();
-        }
+    private synchronized void addCityToHistory(String city) {
+        history.record(city);
+        SearchHistory.Entry entry = history.get(city);
+        cityIndex.addSearched(city, entry.getHitCount(), entry.getLastUsed());
+        JsonObject record = record("search", city);
+        record.addProperty("hits", entry.getHitCount());
+        record.addProperty("lastUsed", entry.getLastUsed());
+        journal.append(record);
+    }
+
+    /**
+     * Creates a journal record of a change to a city.
+     *
+     * @param op the kind of the change
+     * @param city the city
+     * @return the record
+     */
+    private static JsonObject record(String op, String city) {
+        JsonObject record = new JsonObject();
+        record.addProperty("op", op);
+        record.addProperty("city", city);
+        return record;
+    }
+
+    /**
+     * Returns the index of the cities suggested while typing a search. The
+     * index holds the searched and favorite cities; other known cities can
+     * be added to it.
+     *
+     * @return the city index.
+     */
+    public CityIndex getCityIndex() {
+        return cityIndex;
+    }
+
+    /**
+     * Suggests cities starting with the typed text, without any network calls.
+     *
+     * @param prefix the text typed so far.
+     * @param limit the maximum number of suggestions.
+     * @return the suggested cities, best first.
+     */
+    public List<String> getSuggestions(String prefix, int limit) {
+        return cityIndex.suggest(prefix, limit);
     }
 
     /**
@@ -241,44 +741,60 @@ public class ProgramState {
      *
      * @return the latest city, or a default message if history is empty
      */
-    public String getLatestCity() {
-        return history.isEmpty() ? NO_HISTORY : history.getFirst();
+    public synchronized String getLatestCity() {
+        return history.isEmpty() ? NO_HISTORY : history.getLatest();
     }
 
     /**
      * Returns the set of favorite cities.
      *
-     * @return the set of favorite cities.
+     * @return a copy of the set of favorite cities.
      */    
-    public TreeSet<String> getFavorites() {
-        return favorites;
+    public synchronized TreeSet<String> getFavorites() {
+        return new TreeSet<>(favorites);
     }
     
     /**
      * Returns the search history.
      *
-     * @return the search history.
+     * @return a read-only list of the searched cities, most recent first.
      */    
-    public LinkedList<String> getHistory() {
-        return history;
+    public synchronized List<String> getHistory() {
+        return history.getCities();
     }
 
     /**
-     * Loads the program state from a JSON file.
+     * Returns the search history with the statistics of each city.
+     *
+     * @return a read-only list of the history entries, most recent first.
+     */    
+    public synchronized List<SearchHistory.Entry> getHistoryEntries() {
+        return history.getEntries();
+    }
+
+    /**
+     * Loads the program state from a JSON file and replays the changes
+     * recorded in the journal after the file was written.
      * @throws Exception if the file cannot be read or parsed.
      */    
-    public void loadProgramState() throws Exception {
+    public synchronized void loadProgramState() throws Exception {
         Gson gson = new Gson();
 
         try {
-            String jsonData = fileHandler.readJsonFromFile(PROGRAM_STATE_FILE);
-            JsonObject programStateData = gson.fromJson(jsonData, JsonObject.class);
+            List<JsonObject> journalRecords = journal.readRecords();
+            if (Files.exists(programStateFile) || journalRecords.isEmpty()) {
+                String jsonData = fileHandler.readJsonFromFile(programStateFile.toString());
+                JsonObject programStateData = gson.fromJson(jsonData, JsonObject.class);
 
-            loadFavoritesFromJson(programStateData);
-            loadHistoryFromJson(programStateData);
+                loadFavoritesFromJson(programStateData);
+                loadHistoryFromJson(programStateData);
+            }
+            for (JsonObject record : journalRecords) {
+                replay(record);
+            }
 
             if (!history.isEmpty()) {
-                currentLocation = history.getFirst();
+                currentLocation = history.getLatest();
             }
         } catch (NullPointerException | JsonSyntaxException e) {
             throw new Exception("Error reading programState.json", e);
@@ -295,6 +811,13 @@ public class ProgramState {
         if (favoriteEntries != null) {
             for (var city : favoriteEntries) {
                 favorites.add(city.getAsString());
+                cityIndex.addFavorite(city.getAsString());
+            }
+        }
+        JsonObject favoriteIds = programStateData.getAsJsonObject("favoriteCityIds");
+        if (favoriteIds != null) {
+            for (var entry : favoriteIds.entrySet()) {
+                favoriteCityIds.put(entry.getKey(), entry.getValue().getAsLong());
             }
         }
     }
@@ -306,28 +829,92 @@ public class ProgramState {
      */
     private void loadHistoryFromJson(JsonObject programStateData) {
         JsonArray historyEntries = programStateData.getAsJsonArray("history");
-        if (historyEntries != null) {
-            for (var city : historyEntries) {
-                history.add(city.getAsString());
+        if (historyEntries == null) {
+            return;
+        }
+        JsonObject historyStats = programStateData.getAsJsonObject("historyStats");
+        // Saved most recent first, restored least recent first
+        for (int i = historyEntries.size() - 1; i >= 0; i--) {
+            String city = historyEntries.get(i).getAsString();
+            JsonObject stats = historyStats == null ? null : historyStats.getAsJsonObject(city);
+            if (stats != null) {
+                history.restore(city, stats.get("hits").getAsInt(), stats.get("lastUsed").getAsLong());
+            } else {
+                history.restore(city, 1, 0);
+            }
+            SearchHistory.Entry entry = history.get(city);
+            if (entry != null) {
+                cityIndex.addSearched(city, entry.getHitCount(), entry.getLastUsed());
             }
         }
     }
 
     /**
-     * Saves the program state to a JSON file.
+     * Applies a change recorded in the journal.
+     *
+     * @param record the journal record
+     */
+    private void replay(JsonObject record) {
+        String city = record.get("city").getAsString();
+        switch (record.get("op").getAsString()) {
+            case "addFavorite":
+                favorites.add(city);
+                cityIndex.addFavorite(city);
+                break;
+            case "removeFavorite":
+                favorites.remove(city);
+                favoriteCityIds.remove(city);
+                cityIndex.removeFavorite(city);
+                break;
+            case "favoriteCityId":
+                favoriteCityIds.put(city, record.get("id").getAsLong());
+                break;
+            case "search":
+                history.restore(city, record.get("hits").getAsInt(), record.get("lastUsed").getAsLong());
+                SearchHistory.Entry entry = history.get(city);
+                cityIndex.addSearched(city, entry.getHitCount(), entry.getLastUsed());
+                break;
+            default:
+                System.err.println("Ignoring unknown journal record " + record);
+        }
+    }
+
+    /**
+     * Saves the program state to a JSON file. Pending journal records are
+     * written first, and the journal is emptied once the file is saved.
+     * Waits until the state is on disk, so this is called when the program
+     * closes; other changes are saved in the background as they happen.
      */    
     public void saveProgramState() {
+        journal.close();
+    }
+
+    /**
+     * Writes the whole program state to the JSON file.
+     *
+     * @return true if the file was written
+     */    
+    private synchronized boolean writeProgramState() {
         Map<String, Object> programStateData = new TreeMap<>();
         programStateData.put("favorites", favorites);
-        programStateData.put("history", history);
+        programStateData.put("favoriteCityIds", new TreeMap<>(favoriteCityIds));
+        List<SearchHistory.Entry> historyEntries = history.getEntries();
+        List<String> historyCities = new ArrayList<>();
+        Map<String, Object> historyStats = new TreeMap<>();
+        for (SearchHistory.Entry entry : historyEntries) {
+            historyCities.add(entry.getCity());
+            historyStats.put(entry.getCity(), Map.of("hits", entry.getHitCount(), "lastUsed", entry.getLastUsed()));
+        }
+        programStateData.put("history", historyCities);
+        programStateData.put("historyStats", historyStats);
 
         String jsonState = new Gson().toJson(programStateData);
 
         try {
-            fileHandler.writeJsonToFile(PROGRAM_STATE_FILE, jsonState);
+            return fileHandler.writeJsonToFile(programStateFile.toString(), jsonState);
         } catch (Exception e) {
             System.err.println("Error when trying to write file " + PROGRAM_STATE_FILE + e.getMessage());
+            return false;
         }
-        
     }
 }
\ No newline at end of file
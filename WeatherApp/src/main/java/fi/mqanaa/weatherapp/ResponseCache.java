@@ -0,0 +1,210 @@
+package fi.mqanaa.weatherapp;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache for decoded API responses, keyed on location, endpoint and units.
+ * Each entry has a time to live after which it is considered stale. Stale
+ * entries can still be served while they are revalidated in the background,
+ * using the validators (ETag and Last-Modified) of the original response.
+ */
+public class ResponseCache {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private final Duration maxStaleness;
+    private final LinkedHashMap<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Initializes a cache with the default capacity.
+     *
+     * @param maxStaleness how long past its expiry an entry may still be served.
+     */
+    public ResponseCache(Duration maxStaleness) {
+        this(DEFAULT_CAPACITY, maxStaleness);
+    }
+
+    /**
+     * Initializes a cache.
+     *
+     * @param capacity the maximum number of responses to keep.
+     * @param maxStaleness how long past its expiry an entry may still be served.
+     */
+    public ResponseCache(int capacity, Duration maxStaleness) {
+        this.capacity = capacity;
+        this.maxStaleness = maxStaleness;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResponseCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Builds the cache key for a response.
+     *
+     * @param coordinates the latitude and longitude of the location.
+     * @param endpoint the API endpoint.
+     * @param unitCode the unit system.
+     * @return the cache key.
+     */
+    public static String key(String[] coordinates, String endpoint, String unitCode) {
+        return coordinates[0] + "," + coordinates[1] + "|" + endpoint + "|" + unitCode;
+    }
+
+    /**
+     * Looks up a response and records a hit or a miss.
+     * Entries that are past their expiry by more than the maximum staleness are dropped.
+     *
+     * @param key the cache key.
+     * @return the cached entry, fresh or stale, or null on a miss.
+     */
+    public synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.expiresAt + maxStaleness.toMillis() < now) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else if (entry.isFresh()) {
+            hits.incrementAndGet();
+        } else {
+            staleHits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Stores a response.
+     *
+     * @param key the cache key.
+     * @param value the decoded response.
+     * @param etag the ETag of the response, or null.
+     * @param lastModified the Last-Modified date of the response, or null.
+     * @param ttl how long the response stays fresh.
+     */
+    public synchronized void put(String key, Object value, String etag, String lastModified, Duration ttl) {
+        entries.put(key, new Entry(value, etag, lastModified, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    /**
+     * Returns the number of lookups answered with a fresh entry.
+     *
+     * @return the hit count.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups answered with a stale entry.
+     *
+     * @return the stale hit count.
+     */
+    public long getStaleHitCount() {
+        return staleHits.get();
+    }
+
+    /**
+     * Returns the number of lookups that found no usable entry.
+     *
+     * @return the miss count.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * A cached response together with its validators and expiry time.
+     */
+    public static final class Entry {
+        private final Object value;
+        private final String etag;
+        private final String lastModified;
+        private volatile long expiresAt;
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        private Entry(Object value, String etag, String lastModified, long expiresAt) {
+            this.value = value;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Returns the cached value.
+         *
+         * @param <T> the type of the value.
+         * @return the decoded response.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T getValue() {
+            return (T) value;
+        }
+
+        /**
+         * Returns the ETag of the cached response.
+         *
+         * @return the ETag, or null if the response had none.
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * Returns the Last-Modified date of the cached response.
+         *
+         * @return the Last-Modified date, or null if the response had none.
+         */
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Checks whether the entry is still within its time to live.
+         *
+         * @return true if the entry has not expired.
+         */
+        public boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+
+        /**
+         * Claims the right to revalidate this entry, so that only one
+         * background revalidation runs per entry at a time.
+         *
+         * @return true if the caller should revalidate the entry.
+         */
+        public boolean startRevalidation() {
+            return revalidating.compareAndSet(false, true);
+        }
+
+        /**
+         * Marks the entry fresh again after the server confirmed it is unchanged.
+         *
+         * @param ttl how long the entry stays fresh.
+         */
+        public void renew(Duration ttl) {
+            expiresAt = System.currentTimeMillis() + ttl.toMillis();
+            revalidating.set(false);
+        }
+
+        /**
+         * Releases the revalidation claim without renewing the entry.
+         */
+        public void endRevalidation() {
+            revalidating.set(false);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package fi.mqanaa.weatherapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Search history of cities, most recently searched first.
+ * The cities are kept in a hash-linked map in order of use, so recording a
+ * search, moving a city to the front and evicting the least recently used
+ * city take constant time however deep the history is. For every city the
+ * number of searches and the time of the latest one are recorded.
+ */
+public class SearchHistory {
+
+    /**
+     * Default number of cities kept in the history.
+     */
+    public static final int DEFAULT_DEPTH = 25;
+
+    private final int depth;
+    // Least recently used first; iteration order is reversed for the views
+    private final LinkedHashMap<String, Entry> entries;
+    private String latest;
+    private Consumer<String> evictionListener = city -> { };
+
+    /**
+     * Initializes an empty history.
+     *
+     * @param depth the maximum number of cities kept.
+     */
+    public SearchHistory(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("History depth must be positive: " + depth);
+        }
+        this.depth = depth;
+        this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= SearchHistory.this.depth) {
+                    return false;
+                }
+                evictionListener.accept(eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Sets the listener told about cities that drop out of the history
+     * because it is full.
+     *
+     * @param listener called with the evicted city.
+     */
+    public void setEvictionListener(Consumer<String> listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Records a search of a city, moving it to the front of the history.
+     *
+     * @param city the searched city.
+     */
+    public void record(String city) {
+        Entry previous = entries.remove(city);
+        int hitCount = previous == null ? 1 : previous.hitCount + 1;
+        entries.put(city, new Entry(city, hitCount, System.currentTimeMillis()));
+        latest = city;
+    }
+
+    /**
+     * Restores a city with its statistics, as saved by an earlier session.
+     * Cities must be restored from the least to the most recently used.
+     *
+     * @param city the city.
+     * @param hitCount the number of searches of the city.
+     * @param lastUsed the time of the latest search in milliseconds since the epoch.
+     */
+    public void restore(String city, int hitCount, long lastUsed) {
+        entries.remove(city);
+        entries.put(city, new Entry(city, Math.max(1, hitCount), lastUsed));
+        latest = city;
+    }
+
+    /**
+     * Returns the most recently searched city.
+     *
+     * @return the latest city, or null if the history is empty.
+     */
+    public String getLatest() {
+        return latest;
+    }
+
+    /**
+     * Checks whether the history is empty.
+     *
+     * @return true if no city has been searched.
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Returns the number of cities in the history.
+     *
+     * @return the size of the history.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the maximum number of cities kept in the history.
+     *
+     * @return the depth of the history.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the statistics of a city.
+     *
+     * @param city the city.
+     * @return the entry of the city, or null if it is not in the history.
+     */
+    public Entry get(String city) {
+        return entries.get(city);
+    }
+
+    /**
+     * Returns the cities of the history, most recently searched first.
+     *
+     * @return a read-only copy of the cities.
+     */
+    public List<String> getCities() {
+        List<String> cities = new ArrayList<>(entries.keySet());
+        Collections.reverse(cities);
+        return Collections.unmodifiableList(cities);
+    }
+
+    /**
+     * Returns the entries of the history, most recently searched first.
+     *
+     * @return a read-only copy of the entries.
+     */
+    public List<Entry> getEntries() {
+        List<Entry> list = new ArrayList<>(entries.values());
+        Collections.reverse(list);
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * A city of the history with its statistics.
+     */
+    public static final class Entry {
+        private final String city;
+        private final int hitCount;
+        private final long lastUsed;
+
+        private Entry(String city, int hitCount, long lastUsed) {
+            this.city = city;
+            this.hitCount = hitCount;
+            this.lastUsed = lastUsed;
+        }
+
+        /**
+         * Returns the city.
+         *
+         * @return the name of the city.
+         */
+        public String getCity() {
+            return city;
+        }
+
+        /**
+         * Returns how many times the city has been searched.
+         *
+         * @return the number of searches.
+         */
+        public int getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * Returns when the city was last searched.
+         *
+         * @return the time in milliseconds since the epoch.
+         */
+        public long getLastUsed() {
+            return lastUsed;
+        }
+    }
+}
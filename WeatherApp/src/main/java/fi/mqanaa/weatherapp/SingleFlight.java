@@ -0,0 +1,179 @@
+package fi.mqanaa.weatherapp;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces concurrent identical requests so that only one of them does the work.
+ * Callers asking for a key that is already in flight share its result instead
+ * of starting their own request. Each caller gets its own future; cancelling
+ * it only withdraws that caller, and the shared request itself is cancelled
+ * once no caller is waiting for it anymore.
+ *
+ * @param <K> the type of the request keys.
+ * @param <V> the type of the results.
+ */
+public class SingleFlight<K, V> {
+
+    // Shared requests run apart from their callers, so that interrupting a caller only withdraws it
+    private static final ExecutorService LOADERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "single-flight");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Runs a request, or joins the identical request already in flight.
+     *
+     * @param key the key identifying identical requests.
+     * @param loader the request to run if none is in flight.
+     * @param executor the executor the request is run on.
+     * @return a future for this caller, completed with the shared result.
+     */
+    public CompletableFuture<V> execute(K key, Callable<V> loader, Executor executor) {
+        while (true) {
+            Flight<V> flight = flights.computeIfAbsent(key, k -> new Flight<>());
+            if (!flight.join()) {
+                // Every caller of this flight withdrew just now; start over with a new one
+                flights.remove(key, flight);
+                continue;
+            }
+
+            CompletableFuture<V> caller = new CompletableFuture<>();
+            flight.result.whenComplete((value, failure) -> {
+                if (failure != null) {
+                    caller.completeExceptionally(failure);
+                } else {
+                    caller.complete(value);
+                }
+            });
+            caller.whenComplete((value, failure) -> {
+                if (caller.isCancelled()) {
+                    flight.leave();
+                }
+            });
+
+            if (flight.start()) {
+                flight.result.whenComplete((value, failure) -> flights.remove(key, flight));
+                executor.execute(() -> flight.run(loader));
+            }
+            return caller;
+        }
+    }
+
+    /**
+     * Runs a request in the background, or joins the identical request
+     * already in flight, and waits for its result until the caller's
+     * deadline. If the caller is interrupted or its deadline passes, only
+     * this caller withdraws; the others keep waiting for the shared request.
+     * The loader therefore should not depend on the deadline of the caller
+     * that happened to start it.
+     *
+     * @param key the key identifying identical requests.
+     * @param loader the request to run if none is in flight.
+     * @param deadline how long this caller waits for the result.
+     * @return the shared result.
+     * @throws TimeoutException if the deadline passes before the result is ready.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     * @throws Exception the failure of the shared request.
+     */
+    public V call(K key, Callable<V> loader, Deadline deadline) throws Exception {
+        CompletableFuture<V> caller = execute(key, loader, LOADERS);
+        try {
+            return caller.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (TimeoutException e) {
+            caller.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            caller.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns how many callers are waiting for a request.
+     *
+     * @param key the key of the request.
+     * @return the number of waiting callers, or 0 if the request is not in flight.
+     */
+    public int getWaiterCount(K key) {
+        Flight<V> flight = flights.get(key);
+        return flight == null ? 0 : flight.getWaiters();
+    }
+
+    /**
+     * A request in flight together with the number of callers waiting for it.
+     *
+     * @param <V> the type of the result.
+     */
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private int waiters;
+        private boolean started;
+        private boolean closed;
+        private Thread runner;
+
+        synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        synchronized boolean start() {
+            if (started) {
+                return false;
+            }
+            started = true;
+            return true;
+        }
+
+        synchronized int getWaiters() {
+            return waiters;
+        }
+
+        synchronized void leave() {
+            waiters--;
+            if (waiters == 0 && !result.isDone()) {
+                closed = true;
+                result.cancel(false);
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+
+        void run(Callable<V> loader) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                result.complete(loader.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package fi.mqanaa.weatherapp;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Append-only journal of changes to the program state, so that changes
+ * survive a crash without writing the whole state on every change.
+ * Changes are recorded as JSON objects, one per line. They are queued in
+ * memory and written on a background thread once no change has been
+ * recorded for a short while, so that the UI never waits for the disk.
+ * When the journal grows long it is compacted: the whole state is saved by
+ * the compactor and the journal is emptied.
+ * <p>
+ * Records must be idempotent, such as "city X is a favorite" rather than
+ * "add one to the count of X", because a record written just before a
+ * compaction may be replayed on top of a state that already contains it.
+ */
+public class StateJournal {
+
+    /**
+     * Default time to wait for more changes before writing.
+     */
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(500);
+    /**
+     * Default number of journaled records that triggers a compaction.
+     */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 200;
+
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(5);
+
+    // One writer thread for all journals keeps the writes of a journal in order
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "state-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Saves the whole state, after which the journal can be emptied.
+     */
+    @FunctionalInterface
+    public interface Compactor {
+        /**
+         * Saves the whole state.
+         *
+         * @return true if the state was saved.
+         */
+        boolean saveState();
+    }
+
+    private final Path journalFile;
+    private final Compactor compactor;
+    private final Duration debounce;
+    private final int compactionThreshold;
+    private final List<String> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    // Only accessed on the writer thread
+    private int journaledRecords;
+
+    /**
+     * Initializes a journal with the default debounce and compaction threshold.
+     *
+     * @param journalFile the file the records are appended to.
+     * @param compactor saves the whole state when the journal is compacted.
+     */
+    public StateJournal(Path journalFile, Compactor compactor) {
+        this(journalFile, compactor, DEFAULT_DEBOUNCE, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Initializes a journal.
+     *
+     * @param journalFile the file the records are appended to.
+     * @param compactor saves the whole state when the journal is compacted.
+     * @param debounce how long to wait for more changes before writing.
+     * @param compactionThreshold the number of journaled records that triggers a compaction.
+     */
+    public StateJournal(Path journalFile, Compactor compactor, Duration debounce, int compactionThreshold) {
+        this.journalFile = journalFile;
+        this.compactor = compactor;
+        this.debounce = debounce;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Records a change. The record is written in the background after the
+     * debounce delay.
+     *
+     * @param record the change, as a JSON object.
+     */
+    public synchronized void append(JsonObject record) {
+        pending.add(record.toString());
+        if (scheduledFlush == null) {
+            scheduledFlush = WRITER.schedule(this::flush, debounce.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reads the records of the journal, oldest first. A record that was only
+     * partly written when the program stopped, and anything after it, is
+     * ignored.
+     *
+     * @return the records, empty if there is no journal.
+     * @throws IOException if the journal cannot be read.
+     */
+    public List<JsonObject> readRecords() throws IOException {
+        List<JsonObject> records = new ArrayList<>();
+        if (!Files.exists(journalFile)) {
+            return records;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    records.add(JsonParser.parseString(line).getAsJsonObject());
+                } catch (JsonParseException | IllegalStateException e) {
+                    System.err.println("Ignoring the incomplete end of " + journalFile);
+                    break;
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Writes the pending records and compacts the journal, waiting until
+     * both are done. Used when the program closes.
+     */
+    public void close() {
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+            }
+            scheduledFlush = null;
+        }
+        try {
+            WRITER.submit(() -> {
+                flush();
+                compact();
+            }).get(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Failed to save the program state: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Appends the pending records to the journal file and forces them to
+     * the disk. Runs on the writer thread.
+     */
+    private void flush() {
+        List<String> records;
+        synchronized (this) {
+            scheduledFlush = null;
+            if (pending.isEmpty()) {
+                return;
+            }
+            records = new ArrayList<>(pending);
+            pending.clear();
+        }
+        StringBuilder lines = new StringBuilder();
+        for (String record : records) {
+            lines.append(record).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(lines.toString());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("Error when trying to write file " + journalFile + ": " + e.getMessage());
+            return;
+        }
+        journaledRecords += records.size();
+        if (journaledRecords >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    /**
+     * Saves the whole state and empties the journal. Every journaled record
+     * was applied to the state before it was recorded, so the saved state
+     * contains it. Runs on the writer thread.
+     */
+    private void compact() {
+        if (!compactor.saveState()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(journalFile);
+            journaledRecords = 0;
+        } catch (IOException e) {
+            System.err.println("Error when trying to empty " + journalFile + ": " + e.getMessage());
+        }
+    }
+}
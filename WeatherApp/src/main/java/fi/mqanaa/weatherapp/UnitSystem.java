@@ -0,0 +1,106 @@
+package fi.mqanaa.weatherapp;
+
+/**
+ * Unit systems the weather data can be displayed in.
+ * Weather data is always stored in metric units (degrees Celsius and
+ * meters per second) and converted when it is displayed, so switching
+ * units does not require fetching the data again.
+ */
+public enum UnitSystem {
+    /**
+     * Degrees Celsius and meters per second.
+     */
+    METRIC("metric", "C", "m/s"),
+    /**
+     * Degrees Fahrenheit and miles per hour.
+     */
+    IMPERIAL("imperial", "F", "mph");
+
+    private static final double MPH_PER_METER_PER_SECOND = 2.2369362920544;
+
+    private final String name;
+    private final String tempUnit;
+    private final String wsUnit;
+
+    UnitSystem(String name, String tempUnit, String wsUnit) {
+        this.name = name;
+        this.tempUnit = tempUnit;
+        this.wsUnit = wsUnit;
+    }
+
+    /**
+     * Returns the name of the unit system.
+     *
+     * @return "metric" or "imperial".
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the temperature unit.
+     *
+     * @return "C" or "F".
+     */
+    public String getTempUnit() {
+        return tempUnit;
+    }
+
+    /**
+     * Returns the wind speed unit.
+     *
+     * @return "m/s" or "mph".
+     */
+    public String getWsUnit() {
+        return wsUnit;
+    }
+
+    /**
+     * Returns the other unit system.
+     *
+     * @return IMPERIAL for METRIC and vice versa.
+     */
+    public UnitSystem toggle() {
+        return this == METRIC ? IMPERIAL : METRIC;
+    }
+
+    /**
+     * Converts a temperature from degrees Celsius to this unit system.
+     *
+     * @param celsius the temperature in degrees Celsius.
+     * @return the temperature in this unit system.
+     */
+    public double convertTemp(double celsius) {
+        return this == METRIC ? celsius : celsius * 9 / 5 + 32;
+    }
+
+    /**
+     * Converts a wind speed from meters per second to this unit system.
+     *
+     * @param metersPerSecond the wind speed in meters per second.
+     * @return the wind speed in this unit system.
+     */
+    public double convertWindSpeed(double metersPerSecond) {
+        return this == METRIC ? metersPerSecond : metersPerSecond * MPH_PER_METER_PER_SECOND;
+    }
+
+    /**
+     * Formats a temperature for display, with an explicit sign and a degree symbol.
+     *
+     * @param celsius the temperature in degrees Celsius.
+     * @return the formatted temperature in this unit system, e.g. "+5°".
+     */
+    public String formatTemp(double celsius) {
+        return WeatherFormatter.formatTemp(convertTemp(celsius));
+    }
+
+    /**
+     * Formats a wind speed for display.
+     *
+     * @param metersPerSecond the wind speed in meters per second.
+     * @return the formatted wind speed in this unit system.
+     */
+    public String formatWindSpeed(double metersPerSecond) {
+        return WeatherFormatter.formatWindSpeed(convertWindSpeed(metersPerSecond));
+    }
+}
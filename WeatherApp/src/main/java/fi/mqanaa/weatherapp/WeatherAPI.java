@@ -2,42 +2,189 @@ package fi.mqanaa.weatherapp;
 
 import java.io.*;
 import java.net.*;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
 
 /**
  * Class used to make WeatherAPI calls to various OpenWeatherMaps APIs.
+ * Any server offering the OpenWeatherMap URL format can be used by giving
+ * its base URL. An instance keeps no state between calls, so the resolved
+ * name of a location is returned with its coordinates, and one instance can
+ * serve concurrent loads.
  */
-public class WeatherAPI {
+public class WeatherAPI implements WeatherProvider {
 
-    private String currentLocation;
+    /**
+     * Base URL of the OpenWeatherMap APIs.
+     */
+    public static final String DEFAULT_BASE_URL = "https://api.openweathermap.org";
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final GeocodingCache geocodingCache;
+    private final CityGazetteer gazetteer;
+    private final HttpTransport transport;
+    private final JsonToWeatherDataEntries entryDecoder = new JsonToWeatherDataEntries();
+    private final ResponseCache responseCache = new ResponseCache(MAX_STALENESS);
+    private final SingleFlight<String, String[]> geocodingFlights = new SingleFlight<>();
+    private final SingleFlight<String, Object> weatherFlights = new SingleFlight<>();
+    private static final Properties CONFIG;
+
+    // How long responses of each endpoint stay fresh; upstream updates current weather every ten minutes
+    private static final Map<String, Duration> ENDPOINT_TTLS = Map.of(
+            "weather", Duration.ofMinutes(10),
+            "forecast/hourly", Duration.ofMinutes(30),
+            "forecast/daily", Duration.ofHours(1)
+    );
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    // Time budget of calls that are not part of a larger operation with its own deadline
+    private static final Duration DEFAULT_BUDGET = Duration.ofSeconds(20);
+    private static final Duration MAX_STALENESS = Duration.ofHours(3);
+
+    private static final ExecutorService REVALIDATION_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "weather-revalidation");
+        thread.setDaemon(true);
+        return thread;
+    });
     private static final String API_KEY;
 
     static {
+        CONFIG = loadConfig();
         API_KEY = loadApiKey();
     }
 
     /**
-     * Loads the API key from the configuration file.
+     * Initializes a WeatherAPI for OpenWeatherMap, using the API key of
+     * config.properties, that resolves locations through the given cache.
      *
-     * @return the API key as a string.
-     * @throws RuntimeException if the key is missing or cannot be loaded.
+     * @param geocodingCache the cache used for geocoding lookups.
      */
-    private static String loadApiKey() {
+    public WeatherAPI(GeocodingCache geocodingCache) {
+        this(geocodingCache, DEFAULT_BASE_URL, API_KEY);
+    }
+
+    /**
+     * Initializes a WeatherAPI for a server offering the OpenWeatherMap URL
+     * format, that resolves locations through the given cache.
+     *
+     * @param geocodingCache the cache used for geocoding lookups.
+     * @param baseUrl the base URL of the server, without a trailing slash.
+     * @param apiKey the API key for the server.
+     */
+    public WeatherAPI(GeocodingCache geocodingCache, String baseUrl, String apiKey) {
+        this(geocodingCache, CityGazetteer.empty(), baseUrl, apiKey);
+    }
+
+    /**
+     * Initializes a WeatherAPI for a server offering the OpenWeatherMap URL
+     * format, that resolves locations through the given cache and, before
+     * calling the geocoding API, the given offline gazetteer.
+     * Connect and request timeouts ("http.connect.timeout.ms" and
+     * "http.request.timeout.ms") and request hedging ("http.hedge.enabled"
+     * and "http.hedge.delay.ms") are read from config.properties when present.
+     *
+     * @param geocodingCache the cache used for geocoding lookups.
+     * @param gazetteer the offline gazetteer used before the geocoding API.
+     * @param baseUrl the base URL of the server, without a trailing slash.
+     * @param apiKey the API key for the server.
+     */
+    public WeatherAPI(GeocodingCache geocodingCache, CityGazetteer gazetteer, String baseUrl, String apiKey) {
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.geocodingCache = geocodingCache;
+        this.gazetteer = gazetteer;
+        this.transport = new HttpTransport(
+                getDurationSetting("http.connect.timeout.ms", HttpTransport.DEFAULT_CONNECT_TIMEOUT),
+                getDurationSetting("http.request.timeout.ms", HttpTransport.DEFAULT_REQUEST_TIMEOUT),
+                Boolean.parseBoolean(CONFIG.getProperty("http.hedge.enabled", "false").trim()),
+                getDurationSetting("http.hedge.delay.ms", HttpTransport.DEFAULT_HEDGE_DELAY)
+        );
+    }
+
+    /**
+     * Loads the configuration file.
+     *
+     * @return the configuration properties.
+     * @throws RuntimeException if the file cannot be loaded.
+     */
+    private static Properties loadConfig() {
         try (FileInputStream input = new FileInputStream("config.properties")) {
             Properties properties = new Properties();
             properties.load(input);
-            String key = properties.getProperty("api.key");
-            if (key == null || key.isEmpty()) {
-                throw new RuntimeException("API key is missing in config.properties");
-            }
-            return key;
+            return properties;
         } catch (IOException e) {
             throw new RuntimeException("Failed to load API key from config.properties", e);
         }
     }
 
+    /**
+     * Loads the API key from the configuration file.
+     *
+     * @return the API key as a string.
+     * @throws RuntimeException if the key is missing.
+     */
+    private static String loadApiKey() {
+        String key = CONFIG.getProperty("api.key");
+        if (key == null || key.isEmpty()) {
+            throw new RuntimeException("API key is missing in config.properties");
+        }
+        return key;
+    }
+
+    /**
+     * Reads a setting from the configuration file.
+     *
+     * @param key the property name.
+     * @param defaultValue the value used when the property is missing.
+     * @return the configured value, trimmed.
+     */
+    public static String getSetting(String key, String defaultValue) {
+        String value = CONFIG.getProperty(key);
+        return value == null ? defaultValue : value.trim();
+    }
+
+    /**
+     * Returns the API key of config.properties.
+     *
+     * @return the API key.
+     */
+    public static String getApiKey() {
+        return API_KEY;
+    }
+
+    /**
+     * Reads a duration in milliseconds from the configuration file.
+     *
+     * @param key the property name.
+     * @param defaultValue the value used when the property is missing or invalid.
+     * @return the configured duration.
+     */
+    public static Duration getDurationSetting(String key, Duration defaultValue) {
+        String value = CONFIG.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Duration.ofMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + " in config.properties: " + value);
+            return defaultValue;
+        }
+    }
+
     /**
      * Gets the current weather for a given location.
      *
@@ -74,6 +221,150 @@ public class WeatherAPI {
         return fetchWeatherData("forecast/daily", location, unitCode, "&cnt=5");
     }
 
+    /**
+     * Gets the current weather for already resolved coordinates, decoded
+     * directly from the response stream.
+     *
+     * @param coordinates the latitude and longitude, as returned by {@link #resolveLocation(String, Deadline)}.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the current weather entry.
+     * @throws WeatherApiException if weather data cannot be fetched.
+     */
+    @Override
+    public HourlyWeatherDataEntry getCurrentWeatherEntry(String[] coordinates, String unitCode, 
+            Deadline deadline) throws WeatherApiException {
+        return getCityCurrentWeatherEntry(coordinates, unitCode, deadline).getValue();
+    }
+
+    /**
+     * Gets the current weather for already resolved coordinates together with
+     * the ID of the city the weather belongs to. The ID can be used to refresh
+     * the city in bulk with {@link #getCurrentWeatherEntries(List, String, Deadline)}.
+     *
+     * @param coordinates the latitude and longitude, as returned by {@link #resolveLocation(String, Deadline)}.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the city ID mapped to the current weather entry.
+     * @throws WeatherApiException if weather data cannot be fetched.
+     */
+    @Override
+    public Map.Entry<Long, HourlyWeatherDataEntry> getCityCurrentWeatherEntry(String[] coordinates, String unitCode, 
+            Deadline deadline) throws WeatherApiException {
+        return fetchWeatherEntries("weather", coordinates, unitCode, deadline, entryDecoder::readCityCurrentWeatherDataObject);
+    }
+
+    /**
+     * Gets the current weather of several cities with a single request to the
+     * multi-city group endpoint.
+     *
+     * @param cityIds the IDs of the cities, at most {@link #MAX_GROUP_SIZE}.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the current weather entries by city ID.
+     * @throws WeatherApiException if weather data cannot be fetched, e.g. because the API key has no access to the endpoint.
+     */
+    @Override
+    public Map<Long, HourlyWeatherDataEntry> getCurrentWeatherEntries(List<Long> cityIds, String unitCode, 
+            Deadline deadline) throws WeatherApiException {
+        if (cityIds.size() > MAX_GROUP_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_GROUP_SIZE + " cities can be requested at once");
+        }
+        StringJoiner ids = new StringJoiner(",");
+        cityIds.forEach(id -> ids.add(Long.toString(id)));
+        String unit = "C".equals(unitCode) ? "metric" : "imperial";
+        String urlString = String.format(
+                "%s/data/2.5/group?id=%s&appid=%s&units=%s",
+                baseUrl, ids, apiKey, unit
+        );
+        return fetchAndCache(urlString, null, null, null, deadline, entryDecoder::readCurrentWeatherGroup);
+    }
+
+    /**
+     * Gets the hourly forecast for already resolved coordinates, decoded
+     * directly from the response stream.
+     *
+     * @param coordinates the latitude and longitude, as returned by {@link #resolveLocation(String, Deadline)}.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the hourly forecast entries.
+     * @throws WeatherApiException if forecast data cannot be fetched.
+     */
+    @Override
+    public List<HourlyWeatherDataEntry> getHourlyEntries(String[] coordinates, String unitCode, 
+            Deadline deadline) throws WeatherApiException {
+        return fetchWeatherEntries("forecast/hourly", coordinates, unitCode, deadline, entryDecoder::readHourlyWeatherDataObjects);
+    }
+
+    /**
+     * Gets the daily forecast for the next five days for already resolved
+     * coordinates, decoded directly from the response stream.
+     *
+     * @param coordinates the latitude and longitude, as returned by {@link #resolveLocation(String, Deadline)}.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the daily forecast entries.
+     * @throws WeatherApiException if daily data cannot be fetched.
+     */
+    @Override
+    public List<DailyWeatherDataEntry> getDailyEntries(String[] coordinates, String unitCode, 
+            Deadline deadline) throws WeatherApiException {
+        return fetchWeatherEntries("forecast/daily", coordinates, unitCode, deadline, entryDecoder::readDailyWeatherDataObjects, "&cnt=5");
+    }
+
+    /**
+     * Resolves a location to coordinates once, so that several endpoints can
+     * be queried for it without repeating the lookup.
+     *
+     * @param location the name of the location.
+     * @return an array containing latitude at index 0, longitude at index 1 and the resolved name at index 2.
+     * @throws WeatherApiException if the location cannot be found.
+     */
+    public String[] resolveLocation(String location) throws WeatherApiException {
+        return resolveLocation(location, Deadline.after(DEFAULT_BUDGET));
+    }
+
+    /**
+     * Resolves a location to coordinates once, so that several endpoints can
+     * be queried for it without repeating the lookup.
+     * Cached results are used when available, then the offline gazetteer is
+     * searched, and the geocoding API is called only if both miss. Locations
+     * that recently failed to resolve are not looked up again until their entry expires.
+     * Concurrent lookups of the same location share a single request.
+     *
+     * @param location the name of the location.
+     * @param deadline the deadline of the operation the lookup belongs to.
+     * @return an array containing latitude at index 0, longitude at index 1 and the resolved name at index 2.
+     * @throws WeatherApiException with kind NOT_FOUND if the location does not exist, 
+     *         or another kind if the lookup fails.
+     */
+    @Override
+    public String[] resolveLocation(String location, Deadline deadline) throws WeatherApiException {
+        String[] resolved = geocodingCache.get(location);
+        if (resolved == null) {
+            resolved = gazetteer.lookUp(location);
+        }
+        if (resolved == null) {
+            if (geocodingCache.isKnownMiss(location)) {
+                throw locationNotFound();
+            }
+            try {
+                resolved = geocodingFlights.call(GeocodingCache.normalize(location),
+                        () -> geocode(location, Deadline.after(DEFAULT_BUDGET)), deadline);
+            } catch (Exception e) {
+                throw classify(e);
+            }
+            if (resolved == null) {
+                throw locationNotFound();
+            }
+        }
+        return resolved.clone();
+    }
+
+    private static WeatherApiException locationNotFound() {
+        return new WeatherApiException(WeatherApiException.Kind.NOT_FOUND, "Failed to find location", null);
+    }
+
     /**
      * Fetches weather data from the specified endpoint.
      *
@@ -82,107 +373,308 @@ public class WeatherAPI {
      * @param unitCode the unit system, "C" for metric or "F" for imperial.
      * @param extraParams additional query parameters.
      * @return a JSON string containing the weather data.
-     * @throws Exception if weather data cannot be fetched.
+     * @throws WeatherApiException if weather data cannot be fetched.
      */
-    private String fetchWeatherData(String endpoint, String location, String unitCode, String... extraParams) throws Exception {
-        String unit = "C".equals(unitCode) ? "metric" : "imperial";
-        String[] coordinates = lookUpLocation(location);
-        validateCoordinates(coordinates);
+    private String fetchWeatherData(String endpoint, String location, String unitCode, String... extraParams) throws WeatherApiException {
+        Deadline deadline = Deadline.after(DEFAULT_BUDGET);
+        String[] coordinates = resolveLocation(location, deadline);
+        return callAPI(buildWeatherUrl(endpoint, coordinates, unitCode, extraParams), deadline).toString();
+    }
 
-        String urlString = String.format(
-                "https://api.openweathermap.org/data/2.5/%s?lat=%s&lon=%s&appid=%s&units=%s%s",
-                endpoint, coordinates[0], coordinates[1], API_KEY, unit, String.join("", extraParams)
-        );
+    /**
+     * Decodes a response body from a JSON stream.
+     *
+     * @param <T> the type of the decoded value.
+     */
+    @FunctionalInterface
+    private interface Decoder<T> {
+        T decode(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Fetches weather data for resolved coordinates from the specified endpoint
+     * and decodes it while the response body is streamed, without building an
+     * intermediate JSON tree or string.
+     * Responses are cached per location, endpoint and units. An expired
+     * response is returned immediately while a conditional request
+     * revalidates it in the background. Concurrent misses for the same
+     * response share a single request.
+     *
+     * @param <T> the type of the decoded value.
+     * @param endpoint the API endpoint (e.g., "weather" or "forecast/daily").
+     * @param coordinates the latitude and longitude of the location.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @param decoder the decoder for the response body.
+     * @param extraParams additional query parameters.
+     * @return the decoded weather data.
+     * @throws WeatherApiException if weather data cannot be fetched or decoded.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T fetchWeatherEntries(String endpoint, String[] coordinates, String unitCode, 
+            Deadline deadline, Decoder<T> decoder, String... extraParams) throws WeatherApiException {
+        String urlString = buildWeatherUrl(endpoint, coordinates, unitCode, extraParams);
+        String cacheKey = ResponseCache.key(coordinates, endpoint, unitCode);
+        Duration ttl = ENDPOINT_TTLS.getOrDefault(endpoint, DEFAULT_TTL);
 
-        JsonObject jsonObject = makeAPICall(urlString);
-        if (jsonObject != null) {
-            String weatherData = new Gson().toJson(jsonObject);
-            return weatherData;
-        } else {
-            throw new Exception("Failed to read weather data.");
+        ResponseCache.Entry cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            if (!cached.isFresh() && cached.startRevalidation()) {
+                REVALIDATION_EXECUTOR.execute(() -> revalidate(urlString, cacheKey, cached, ttl, decoder));
+            }
+            return cached.getValue();
+        }
+        try {
+            return (T) weatherFlights.call(cacheKey,
+                    () -> fetchAndCache(urlString, cacheKey, null, ttl, Deadline.after(DEFAULT_BUDGET), decoder),
+                    deadline);
+        } catch (Exception e) {
+            throw classify(e);
         }
     }
 
     /**
-     * Validates the coordinates retrieved for a location.
+     * Revalidates a stale cache entry with a conditional request.
      *
-     * @param coordinates the latitude and longitude of the location.
-     * @throws Exception if the coordinates are invalid.
+     * @param <T> the type of the decoded value.
+     * @param urlString the URL of the request.
+     * @param cacheKey the cache key of the entry.
+     * @param cached the stale entry.
+     * @param ttl how long the revalidated response stays fresh.
+     * @param decoder the decoder for the response body.
+     */
+    private <T> void revalidate(String urlString, String cacheKey, ResponseCache.Entry cached, 
+            Duration ttl, Decoder<T> decoder) {
+        try {
+            fetchAndCache(urlString, cacheKey, cached, ttl, Deadline.after(DEFAULT_BUDGET), decoder);
+        } catch (WeatherApiException e) {
+            cached.endRevalidation();
+            System.err.println("Failed to revalidate " + cacheKey + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Requests weather data, decodes it and stores it in the response cache.
+     * When a cached entry is given, its validators are sent along and a
+     * "304 Not Modified" answer renews the entry instead. Without a cache
+     * key the response is only decoded.
+     *
+     * @param <T> the type of the decoded value.
+     * @param urlString the URL of the request.
+     * @param cacheKey the cache key of the response, or null if it is not cached.
+     * @param cached the entry being revalidated, or null.
+     * @param ttl how long the response stays fresh.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @param decoder the decoder for the response body.
+     * @return the decoded weather data.
+     * @throws WeatherApiException if weather data cannot be fetched or decoded.
+     */
+    private <T> T fetchAndCache(String urlString, String cacheKey, ResponseCache.Entry cached, 
+            Duration ttl, Deadline deadline, Decoder<T> decoder) throws WeatherApiException {
+        Map<String, String> headers = new HashMap<>();
+        if (cached != null && cached.getEtag() != null) {
+            headers.put("If-None-Match", cached.getEtag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            headers.put("If-Modified-Since", cached.getLastModified());
+        }
+
+        HttpTransport.Response response = send(urlString, headers, deadline);
+        try (JsonReader reader = new JsonReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            if (cached != null && response.statusCode() == HttpTransport.HTTP_NOT_MODIFIED) {
+                cached.renew(ttl);
+                return cached.getValue();
+            }
+            if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                throw new WeatherApiException(response.statusCode(), "Failed to read weather data.");
+            }
+            T value = decoder.decode(reader);
+            if (cacheKey == null) {
+                return value;
+            }
+            responseCache.put(cacheKey, value, 
+                    response.headers().firstValue("ETag").orElse(null), 
+                    response.headers().firstValue("Last-Modified").orElse(null), 
+                    ttl);
+            return value;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw classify(e);
+        }
+    }
+
+    /**
+     * Sends a request through the transport, classifying failures.
+     *
+     * @param urlString the URL of the request.
+     * @param headers the additional request headers.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the response.
+     * @throws WeatherApiException with kind TIMEOUT, NETWORK or CANCELLED if the request fails.
      */
-    private void validateCoordinates(String[] coordinates) throws Exception {
-        if ("0.0".equals(coordinates[0]) && "0.0".equals(coordinates[1])) {
-            throw new Exception("Failed to find location");
+    private HttpTransport.Response send(String urlString, Map<String, String> headers, Deadline deadline) throws WeatherApiException {
+        try {
+            return transport.get(urlString, headers, deadline);
+        } catch (HttpTimeoutException e) {
+            throw new WeatherApiException(WeatherApiException.Kind.TIMEOUT, "Weather data request timed out", e);
+        } catch (IOException e) {
+            throw new WeatherApiException(WeatherApiException.Kind.NETWORK, "Failed to reach the weather service", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WeatherApiException(WeatherApiException.Kind.CANCELLED, "Weather data request was cancelled", e);
+        }
+    }
+
+    /**
+     * Classifies an exception thrown while requesting or decoding weather data.
+     *
+     * @param e the exception.
+     * @return the exception itself if it is already classified, otherwise a classified wrapper.
+     */
+    private static WeatherApiException classify(Exception e) {
+        if (e instanceof WeatherApiException) {
+            return (WeatherApiException) e;
+        } else if (isTimeout(e)) {
+            return new WeatherApiException(WeatherApiException.Kind.TIMEOUT, "Weather data request timed out", e);
+        } else if (e instanceof InterruptedException) {
+            return new WeatherApiException(WeatherApiException.Kind.CANCELLED, "Weather data request was cancelled", e);
+        } else if (e instanceof MalformedJsonException || e instanceof EOFException 
+                || e instanceof IllegalStateException || e instanceof NumberFormatException 
+                || e instanceof JsonParseException) {
+            return new WeatherApiException(WeatherApiException.Kind.INVALID_RESPONSE, "Failed to read weather data.", e);
+        }
+        return new WeatherApiException(WeatherApiException.Kind.NETWORK, "Failed to read weather data.", e);
+    }
+
+    // Gson wraps the failures of the stream it reads, such as a body read timing out
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpTimeoutException || cause instanceof TimeoutException) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * Builds the URL for a weather data request.
+     *
+     * @param endpoint the API endpoint (e.g., "weather" or "forecast/daily").
+     * @param coordinates the latitude and longitude of the location.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param extraParams additional query parameters.
+     * @return the request URL.
+     */
+    private String buildWeatherUrl(String endpoint, String[] coordinates, String unitCode, String... extraParams) {
+        String unit = "C".equals(unitCode) ? "metric" : "imperial";
+        return String.format(
+                "%s/data/2.5/%s?lat=%s&lon=%s&appid=%s&units=%s%s",
+                baseUrl, endpoint, coordinates[0], coordinates[1], apiKey, unit, String.join("", extraParams)
+        );
     }
 
     /**
      * Makes an API call and returns the result as a JSON object.
+     * For array responses the first element is returned, or an empty object if the array is empty.
      *
      * @param urlString the URL string for the API request.
      * @return a JsonObject containing the response, or null if an error occurs.
      */
     public JsonObject makeAPICall(String urlString) {
         try {
-            URL url = new URL(urlString);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            int responseCode = connection.getResponseCode();
-
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                try (BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                    StringBuilder response = new StringBuilder();
-                    String inputLine;
-                    while ((inputLine = in.readLine()) != null) {
-                        response.append(inputLine);
-                    }
-                    // Parse the JSON response
-                    JsonObject jsonObject;
-                    JsonElement rootElement = JsonParser.parseString(response.toString());
-                    if (rootElement.isJsonObject()) {
-                        jsonObject = rootElement.getAsJsonObject();
-                    } else {
-                        JsonArray jsonArray = rootElement.getAsJsonArray();
-                        jsonObject = jsonArray.get(0).getAsJsonObject();
-                    }
-                    return jsonObject;
-                }
-            }
-        } catch (IOException | JsonSyntaxException e) {
+            return callAPI(urlString, Deadline.after(DEFAULT_BUDGET));
+        } catch (WeatherApiException e) {
             return null;
+        }
+    }
 
+    /**
+     * Makes an API call and returns the result as a JSON object.
+     * For array responses the first element is returned, or an empty object if the array is empty.
+     *
+     * @param urlString the URL string for the API request.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return a JsonObject containing the response.
+     * @throws WeatherApiException if the request fails or the response is not valid JSON.
+     */
+    private JsonObject callAPI(String urlString, Deadline deadline) throws WeatherApiException {
+        HttpTransport.Response response = send(urlString, Map.of(), deadline);
+        try (Reader in = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+            if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                throw new WeatherApiException(response.statusCode(), "Failed to read weather data.");
+            }
+            // Parse the JSON response
+            JsonElement rootElement = JsonParser.parseReader(in);
+            if (rootElement.isJsonObject()) {
+                return rootElement.getAsJsonObject();
+            }
+            JsonArray jsonArray = rootElement.getAsJsonArray();
+            return jsonArray.isEmpty() ? new JsonObject() : jsonArray.get(0).getAsJsonObject();
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            throw classify(e);
         }
-        return null;
     }
 
     /**
      * Looks up the latitude and longitude for a given location.
      *
      * @param location the name of the location.
-     * @return an array containing latitude at index 0 and longitude at index 1.
+     * @return an array containing latitude at index 0 and longitude at index 1,
+     *         or "0.0" for both if the location cannot be found.
      */
     public String[] lookUpLocation(String location) {
-        currentLocation = "";
+        try {
+            String[] resolved = resolveLocation(location);
+            return new String[] {resolved[0], resolved[1]};
+        } catch (WeatherApiException e) {
+            if (e.getKind() != WeatherApiException.Kind.NOT_FOUND) {
+                System.err.println("Failed to look up " + location + ": " + e.getMessage());
+            }
+            return new String[] {"0.0", "0.0"};
+        }
+    }
+
+    /**
+     * Queries the geocoding API for a location and caches the result.
+     *
+     * @param location the name of the location.
+     * @param deadline the deadline of the operation the lookup belongs to.
+     * @return an array containing latitude, longitude and the resolved name, or null if not found.
+     * @throws WeatherApiException if the lookup fails.
+     */
+    private String[] geocode(String location, Deadline deadline) throws WeatherApiException {
         String urlString = String.format(
-                "http://api.openweathermap.org/geo/1.0/direct?q=%s&limit=1&appid=%s",
-                location, API_KEY
+                "%s/geo/1.0/direct?q=%s&limit=1&appid=%s",
+                baseUrl, URLEncoder.encode(location, StandardCharsets.UTF_8), apiKey
         );
 
-        JsonObject jsonObject = makeAPICall(urlString);
-        String[] coordinates = {"0.0", "0.0"};
-        if (jsonObject != null && jsonObject.has("lat") && jsonObject.has("lon")) {
-            coordinates[0] = jsonObject.get("lat").getAsString();
-            coordinates[1] = jsonObject.get("lon").getAsString();
-            currentLocation = jsonObject.get("name").getAsString();
+        JsonObject jsonObject = callAPI(urlString, deadline);
+        if (jsonObject.has("lat") && jsonObject.has("lon")) {
+            String[] resolved = {
+                jsonObject.get("lat").getAsString(),
+                jsonObject.get("lon").getAsString(),
+                jsonObject.get("name").getAsString()
+            };
+            geocodingCache.put(location, resolved[0], resolved[1], resolved[2]);
+            return resolved;
         }
-        return coordinates;
+        // The API answered but found no match, as opposed to a network error
+        geocodingCache.putMiss(location);
+        return null;
     }
 
     /**
-     * Gets the name of the most recently queried location.
+     * Returns the cache of decoded weather responses, for inspecting its hit and miss counts.
      *
-     * @return the name of the current location.
+     * @return the response cache.
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Saves the geocoding cache so resolved locations survive a restart.
      */
-    public String getCurrentLocationName() {
-        return currentLocation;
+    public void saveGeocodingCache() {
+        geocodingCache.save();
     }
 }
@@ -0,0 +1,116 @@
+package fi.mqanaa.weatherapp;
+
+/**
+ * Thrown when a weather API request fails, classified by the kind of failure.
+ */
+public class WeatherApiException extends Exception {
+
+    /**
+     * The kinds of failures a weather API request can end in.
+     */
+    public enum Kind {
+        /**
+         * The request did not finish within its timeout or deadline.
+         */
+        TIMEOUT,
+        /**
+         * The request could not be sent or its response could not be received.
+         */
+        NETWORK,
+        /**
+         * The request was cancelled or its thread interrupted.
+         */
+        CANCELLED,
+        /**
+         * The requested location does not exist.
+         */
+        NOT_FOUND,
+        /**
+         * The API key was rejected.
+         */
+        UNAUTHORIZED,
+        /**
+         * The API key has exceeded its request quota.
+         */
+        RATE_LIMITED,
+        /**
+         * The API failed to process the request.
+         */
+        SERVER_ERROR,
+        /**
+         * The API answered with another unexpected status code.
+         */
+        HTTP_ERROR,
+        /**
+         * The response could not be decoded.
+         */
+        INVALID_RESPONSE
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final Kind kind;
+    private final int statusCode;
+
+    /**
+     * Creates an exception for a failure without an HTTP status.
+     *
+     * @param kind the kind of failure.
+     * @param message the detail message.
+     * @param cause the underlying cause, or null.
+     */
+    public WeatherApiException(Kind kind, String message, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+        this.statusCode = 0;
+    }
+
+    /**
+     * Creates an exception for a response with an unexpected HTTP status.
+     *
+     * @param statusCode the HTTP status code of the response.
+     * @param message the detail message.
+     */
+    public WeatherApiException(int statusCode, String message) {
+        super(message + " (HTTP " + statusCode + ")");
+        this.kind = kindOf(statusCode);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Classifies an HTTP status code.
+     *
+     * @param statusCode the HTTP status code.
+     * @return the kind of failure the status code stands for.
+     */
+    private static Kind kindOf(int statusCode) {
+        if (statusCode == 401 || statusCode == 403) {
+            return Kind.UNAUTHORIZED;
+        } else if (statusCode == 404) {
+            return Kind.NOT_FOUND;
+        } else if (statusCode == 429) {
+            return Kind.RATE_LIMITED;
+        } else if (statusCode >= 500) {
+            return Kind.SERVER_ERROR;
+        }
+        return Kind.HTTP_ERROR;
+    }
+
+    /**
+     * Returns the kind of failure.
+     *
+     * @return the kind of failure.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the HTTP status code of the failed response.
+     *
+     * @return the status code, or 0 if the failure was not an HTTP error response.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
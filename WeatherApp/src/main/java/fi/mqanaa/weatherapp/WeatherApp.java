@@ -1,31 +1,44 @@
 package fi.mqanaa.weatherapp;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
+import javafx.geometry.Side;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
 import javafx.scene.control.Label;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
-import java.util.List;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import javafx.concurrent.Task;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TextField;
 import javafx.scene.control.ToolBar;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import javafx.scene.text.Text;
+import javafx.util.Duration;
 
 /**
  * JavaFX application for displaying weather information.
@@ -35,293 +48,39 @@ import javafx.scene.text.Text;
  */
 public class WeatherApp extends Application {
     private Stage stage;
+    private Scene scene;
     private VBox mainLayout;
-    private ScrollPane hourlyForecastBox;
+    private VBox searchLayout;
     private GridPane favoritesPane;
+    private ListView<String> searchHistoryView;
+    private WeatherViewModel viewModel;
     private final Text infoText = new Text("");
-    private final List<VBox> dailyWeatherBoxes = new ArrayList<>();
+    private final Label currentWeatherLabel = new Label();
+    private final ImageView currentIcon = new ImageView();
+    private final Label currentTempLabel = new Label();
+    private final Label currentFeelsLikeLabel = new Label();
+    private final Label currentWindLabel = new Label();
+    private final Label currentHumidityLabel = new Label();
+    private final HBox dailyForecastsBox = new HBox();
+    private final List<DayTile> dayTiles = new ArrayList<>();
+    private final Map<String, FavoriteTile> favoriteTiles = new HashMap<>();
+    private boolean favoritesRefreshing;
+    private boolean favoritesRefreshQueued;
+    private Task<Void> weatherRefresh;
     private static ProgramState state;
-    
-    // Mapping of weather IDs to icons
-    private static final Map<String, Map<String, String>> icons = new HashMap<>();
-    static {
-        Map<String, String> icons200 = new HashMap<>();
-        icons200.put("day", "/images/thunderstormrain.png");
-        icons200.put("night", "/images/thunderstormrain.png");
-        
-        Map<String, String> icons201 = new HashMap<>();
-        icons201.put("day", "/images/thunderstormrain.png");
-        icons201.put("night", "/images/thunderstormrain.png");
-        
-        Map<String, String> icons202 = new HashMap<>();
-        icons202.put("day", "/images/thunderstormrain.png");
-        icons202.put("night", "/images/thunderstormrain.png");
-        
-        Map<String, String> icons210 = new HashMap<>();
-        icons210.put("day", "/images/thunderstorm.png");
-        icons210.put("night", "/images/thunderstorm.png");
-        
-        Map<String, String> icons211 = new HashMap<>();
-        icons211.put("day", "/images/thunderstorm.png");
-        icons211.put("night", "/images/thunderstorm.png");
-        
-        Map<String, String> icons212 = new HashMap<>();
-        icons212.put("day", "/images/thunderstorm.png");
-        icons212.put("night", "/images/thunderstorm.png");
-        
-        Map<String, String> icons221 = new HashMap<>();
-        icons221.put("day", "/images/thunderstorm.png");
-        icons221.put("night", "/images/thunderstorm.png");
-        
-        Map<String, String> icons230 = new HashMap<>();
-        icons230.put("day", "/images/thunderstormrain.png");
-        icons230.put("night", "/images/thunderstormrain.png");
-        
-        Map<String, String> icons231 = new HashMap<>();
-        icons231.put("day", "/images/thunderstormrain.png");
-        icons231.put("night", "/images/thunderstormrain.png");
-        
-        Map<String, String> icons232 = new HashMap<>();
-        icons232.put("day", "/images/thunderstormrain.png");
-        icons232.put("night", "/images/thunderstormrain.png");
-        
-        Map<String, String> icons300 = new HashMap<>();
-        icons300.put("day", "/images/moderaterain.png");
-        icons300.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons301 = new HashMap<>();
-        icons301.put("day", "/images/moderaterain.png");
-        icons301.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons302 = new HashMap<>();
-        icons302.put("day", "/images/moderaterain.png");
-        icons302.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons310 = new HashMap<>();
-        icons310.put("day", "/images/moderaterain.png");
-        icons310.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons311 = new HashMap<>();
-        icons311.put("day", "/images/moderaterain.png");
-        icons311.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons312 = new HashMap<>();
-        icons312.put("day", "/images/moderaterain.png");
-        icons312.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons313 = new HashMap<>();
-        icons313.put("day", "/images/moderaterain.png");
-        icons313.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons314 = new HashMap<>();
-        icons314.put("day", "/images/moderaterain.png");
-        icons314.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons321 = new HashMap<>();
-        icons321.put("day", "/images/moderaterain.png");
-        icons321.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons500 = new HashMap<>();
-        icons500.put("day", "/images/lightrain_day.png");
-        icons500.put("night", "/images/lightrain_night.png");
-        
-        Map<String, String> icons501 = new HashMap<>();
-        icons501.put("day", "/images/moderaterain.png");
-        icons501.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons502 = new HashMap<>();
-        icons502.put("day", "/images/heavyrain.png");
-        icons502.put("night", "/images/heavyrain.png");
-        
-        Map<String, String> icons503 = new HashMap<>();
-        icons503.put("day", "/images/extremerain.png");
-        icons503.put("night", "/images/extremerain.png");
-        
-        Map<String, String> icons504 = new HashMap<>();
-        icons504.put("day", "/images/extremerain.png");
-        icons504.put("night", "/images/extremerain.png");
-        
-        Map<String, String> icons511 = new HashMap<>();
-        icons511.put("day", "/images/freezingrain.png");
-        icons511.put("night", "/images/freezingrain.png");
-        
-        Map<String, String> icons520 = new HashMap<>();
-        icons520.put("day", "/images/moderaterain.png");
-        icons520.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons521 = new HashMap<>();
-        icons521.put("day", "/images/moderaterain.png");
-        icons521.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons522 = new HashMap<>();
-        icons522.put("day", "/images/moderaterain.png");
-        icons522.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons531 = new HashMap<>();
-        icons531.put("day", "/images/moderaterain.png");
-        icons531.put("night", "/images/moderaterain.png");
-        
-        Map<String, String> icons600 = new HashMap<>();
-        icons600.put("day", "/images/lightsnow_day.png");
-        icons600.put("night", "/images/lightsnow_night.png");
-        
-        Map<String, String> icons601 = new HashMap<>();
-        icons601.put("day", "/images/lightsnow_day.png");
-        icons601.put("night", "/images/lightsnow_night.png");
-        
-        Map<String, String> icons602 = new HashMap<>();
-        icons602.put("day", "/images/heavysnow.png");
-        icons602.put("night", "/images/heavysnow.png");
-        
-        Map<String, String> icons611 = new HashMap<>();
-        icons611.put("day", "/images/snow.png");
-        icons611.put("night", "/images/snow.png");
-        
-        Map<String, String> icons612 = new HashMap<>();
-        icons612.put("day", "/images/snow.png");
-        icons612.put("night", "/images/snow.png");
-        
-        Map<String, String> icons613 = new HashMap<>();
-        icons613.put("day", "/images/snow.png");
-        icons613.put("night", "/images/snow.png");
-        
-        Map<String, String> icons615 = new HashMap<>();
-        icons615.put("day", "/images/snow.png");
-        icons615.put("night", "/images/snow.png");
-        
-        Map<String, String> icons616 = new HashMap<>();
-        icons616.put("day", "/images/snow.png");
-        icons616.put("night", "/images/snow.png");
-        
-        Map<String, String> icons620 = new HashMap<>();
-        icons620.put("day", "/images/snow.png");
-        icons620.put("night", "/images/snow.png");
-        
-        Map<String, String> icons621 = new HashMap<>();
-        icons621.put("day", "/images/snow.png");
-        icons621.put("night", "/images/snow.png");
-        
-        Map<String, String> icons622 = new HashMap<>();
-        icons622.put("day", "/images/snow.png");
-        icons622.put("night", "/images/snow.png");
-        
-        Map<String, String> icons701 = new HashMap<>();
-        icons701.put("day", "/images/mist.png");
-        icons701.put("night", "/images/mist.png");
-        
-        Map<String, String> icons711 = new HashMap<>();
-        icons711.put("day", "/images/mist.png");
-        icons711.put("night", "/images/mist.png");
-        
-        Map<String, String> icons721 = new HashMap<>();
-        icons721.put("day", "/images/mist.png");
-        icons721.put("night", "/images/mist.png");
-        
-        Map<String, String> icons731 = new HashMap<>();
-        icons731.put("day", "/images/mist.png");
-        icons731.put("night", "/images/mist.png");
-        
-        Map<String, String> icons741 = new HashMap<>();
-        icons741.put("day", "/images/mist.png");
-        icons741.put("night", "/images/mist.png");
-        
-        Map<String, String> icons751 = new HashMap<>();
-        icons751.put("day", "/images/mist.png");
-        icons751.put("night", "/images/mist.png");
-        
-        Map<String, String> icons761 = new HashMap<>();
-        icons761.put("day", "/images/mist.png");
-        icons761.put("night", "/images/mist.png");
-        
-        Map<String, String> icons762 = new HashMap<>();
-        icons762.put("day", "/images/mist.png");
-        icons762.put("night", "/images/mist.png");
-        
-        Map<String, String> icons771 = new HashMap<>();
-        icons771.put("day", "/images/tornado.png");
-        icons771.put("night", "/images/tornado.png");
-        
-        Map<String, String> icons781 = new HashMap<>();
-        icons781.put("day", "/images/tornado.png");
-        icons781.put("night", "/images/tornado.png");
-        
-        Map<String, String> icons800 = new HashMap<>();
-        icons800.put("day", "/images/clearsky_day.png");
-        icons800.put("night", "/images/clearsky_night.png");
-        
-        Map<String, String> icons801 = new HashMap<>();
-        icons801.put("day", "/images/fewclouds_day.png");
-        icons801.put("night", "/images/fewclouds_night.png");
-        
-        Map<String, String> icons802 = new HashMap<>();
-        icons802.put("day", "/images/fewclouds_day.png");
-        icons802.put("night", "/images/fewclouds_night.png");
-        
-        Map<String, String> icons803 = new HashMap<>();
-        icons803.put("day", "/images/brokenclouds_day.png");
-        icons803.put("night", "/images/brokenclouds_night.png");
-        
-        Map<String, String> icons804 = new HashMap<>();
-        icons804.put("day", "/images/clouds.png");
-        icons804.put("night", "/images/clouds.png");
-        
-        icons.put("200", icons200);
-        icons.put("201", icons201);
-        icons.put("202", icons202);
-        icons.put("210", icons210);
-        icons.put("211", icons211);
-        icons.put("212", icons212);
-        icons.put("221", icons221);
-        icons.put("230", icons230);
-        icons.put("231", icons231);
-        icons.put("232", icons232);
-        icons.put("300", icons300);
-        icons.put("301", icons301);
-        icons.put("302", icons302);
-        icons.put("310", icons310);
-        icons.put("311", icons311);
-        icons.put("312", icons312);
-        icons.put("313", icons313);
-        icons.put("314", icons314);
-        icons.put("321", icons321);
-        icons.put("500", icons500);
-        icons.put("501", icons501);
-        icons.put("502", icons502);
-        icons.put("503", icons503);
-        icons.put("504", icons504);
-        icons.put("511", icons511);
-        icons.put("520", icons520);
-        icons.put("521", icons521);
-        icons.put("522", icons522);
-        icons.put("531", icons531);
-        icons.put("600", icons600);
-        icons.put("601", icons601);
-        icons.put("602", icons602);
-        icons.put("611", icons611);
-        icons.put("612", icons612);
-        icons.put("613", icons613);
-        icons.put("615", icons615);
-        icons.put("616", icons616);
-        icons.put("620", icons620);
-        icons.put("621", icons621);
-        icons.put("622", icons622);
-        icons.put("701", icons701);
-        icons.put("711", icons711);
-        icons.put("721", icons721);
-        icons.put("731", icons731);
-        icons.put("741", icons741);
-        icons.put("751", icons751);
-        icons.put("761", icons761);
-        icons.put("762", icons762);
-        icons.put("771", icons771);
-        icons.put("781", icons781);
-        icons.put("800", icons800);
-        icons.put("801", icons801);
-        icons.put("802", icons802);
-        icons.put("803", icons803);
-        icons.put("804", icons804);
-    }
+    private static final String GEOCODING_CACHE_FILE = "geocodeCache.json";
+    private static final String GAZETTEER_FILE = "cities.bin";
+    private static final Duration SUGGESTION_DELAY = Duration.millis(150);
+    private static final int MAX_SUGGESTIONS = 8;
+    private static final double FAVORITES_HEIGHT = 200;
 
+    // Daemon threads so a load in flight never keeps the JVM alive after the window closes
+    private static final ExecutorService LOAD_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "weather-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
      /**
      * Starts the JavaFX application by setting up the stage and initializing the UI elements.
      * @param stage The primary stage for the application.
@@ -331,33 +90,122 @@ public class WeatherApp extends Application {
     public void start(Stage stage) throws Exception {
         this.stage = stage;
         stage.setTitle("WeatherApp");
+        IconCache.preload();
         
-        WeatherAPI weatherAPI = new WeatherAPI();
         JsonFileHandler fileHandler = new JsonFileHandler();
-        state = new ProgramState(fileHandler, weatherAPI);
+        GeocodingCache geocodingCache = new GeocodingCache(fileHandler, GEOCODING_CACHE_FILE);
+        geocodingCache.load();
+        state = new ProgramState(fileHandler, createWeatherProvider(geocodingCache), getHistoryDepth());
+        CityIndex cityIndex = state.getCityIndex();
+        geocodingCache.getResolvedNames().forEach(cityIndex::addKnown);
+        geocodingCache.setResolvedListener(cityIndex::addKnown);
         try {
             state.loadProgramState();
         } catch (Exception e) {
             infoText.setText(e.getMessage());
         }
         
+        // The forecast of the last session is shown right away and refreshed in the background;
+        // without one, the search layout is shown while the latest location loads
         String latestLocation = state.getLatestCity();
-        if (!latestLocation.equals("No search history")) {
-            try {
-                state.loadWeatherData();
-            } catch (Exception e) {
-                System.err.println(e);
-                state.setCurrentLocation("");
-            }
+        boolean hasSnapshot = state.loadForecastSnapshot();
+        if (!hasSnapshot) {
+            state.setCurrentLocation("");
         }
+        viewModel = new WeatherViewModel(state);
+        mainLayout = getMainLayout();
+        searchLayout = getSearchLayout();
+        // One scene for the whole session, so the stylesheet is parsed only once
+        scene = new Scene(new VBox(), 400, 600);
+        scene.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
+        stage.setScene(scene);
+        stage.setResizable(false);
         setStage(); 
         stage.show();
+        if (hasSnapshot) {
+            refreshWeather();
+        } else if (!latestLocation.equals("No search history")) {
+            loadWeather(latestLocation, false);
+        }
         
         stage.setOnCloseRequest(event -> {
             state.saveProgramState();
+            geocodingCache.save();
         });
     }
     
+    /**
+     * Opens the offline city gazetteer of "gazetteer.file", by default
+     * "cities.bin". Without a valid file, locations are resolved with the
+     * geocoding API only.
+     * @return The gazetteer, empty if the file is missing or invalid.
+     */
+    private static CityGazetteer openGazetteer() {
+        Path file = Path.of(WeatherAPI.getSetting("gazetteer.file", GAZETTEER_FILE));
+        if (!Files.isRegularFile(file)) {
+            return CityGazetteer.empty();
+        }
+        try {
+            return CityGazetteer.open(file);
+        } catch (IOException e) {
+            System.err.println("Failed to open the city gazetteer: " + e.getMessage());
+            return CityGazetteer.empty();
+        }
+    }
+    
+    /**
+     * Creates the weather provider configured in config.properties.
+     * By default OpenWeatherMap is used. "provider.secondary.url" (and
+     * optionally "provider.secondary.key") adds a second OpenWeatherMap
+     * compatible server, and "provider.fixtures.dir" adds recorded responses
+     * for offline use. With more than one provider, "provider.mode" selects
+     * whether calls are raced ("race", the default) or tried one provider
+     * after another ("fallback"). Locations are resolved with the offline
+     * gazetteer of "gazetteer.file" before calling the geocoding API.
+     * @param geocodingCache The cache used for geocoding lookups.
+     * @return The weather provider.
+     */
+    private static WeatherProvider createWeatherProvider(GeocodingCache geocodingCache) {
+        CityGazetteer gazetteer = openGazetteer();
+        List<WeatherProvider> providers = new ArrayList<>();
+        providers.add(new WeatherAPI(geocodingCache, gazetteer, WeatherAPI.DEFAULT_BASE_URL, WeatherAPI.getApiKey()));
+        String secondaryUrl = WeatherAPI.getSetting("provider.secondary.url", "");
+        if (!secondaryUrl.isEmpty()) {
+            String secondaryKey = WeatherAPI.getSetting("provider.secondary.key", WeatherAPI.getApiKey());
+            providers.add(new WeatherAPI(geocodingCache, gazetteer, secondaryUrl, secondaryKey));
+        }
+        String fixturesDir = WeatherAPI.getSetting("provider.fixtures.dir", "");
+        if (!fixturesDir.isEmpty()) {
+            try {
+                providers.add(new FixtureWeatherProvider(Path.of(fixturesDir)));
+            } catch (IOException e) {
+                System.err.println("Failed to load fixtures: " + e.getMessage());
+            }
+        }
+        if (providers.size() == 1) {
+            return providers.get(0);
+        }
+        CompositeWeatherProvider.Mode mode = "fallback".equalsIgnoreCase(WeatherAPI.getSetting("provider.mode", "race"))
+                ? CompositeWeatherProvider.Mode.FALLBACK
+                : CompositeWeatherProvider.Mode.RACE;
+        return new CompositeWeatherProvider(mode, providers);
+    }
+    
+    /**
+     * Reads the depth of the search history from "history.depth" in
+     * config.properties.
+     * @return The configured depth, or the default depth if it is missing or invalid.
+     */
+    private static int getHistoryDepth() {
+        try {
+            int depth = Integer.parseInt(WeatherAPI.getSetting("history.depth", 
+                    String.valueOf(SearchHistory.DEFAULT_DEPTH)));
+            return depth > 0 ? depth : SearchHistory.DEFAULT_DEPTH;
+        } catch (NumberFormatException e) {
+            return SearchHistory.DEFAULT_DEPTH;
+        }
+    }
+    
     /**
      * The main entry point for the JavaFX application.
      * @param args The command line arguments.
@@ -367,31 +215,39 @@ public class WeatherApp extends Application {
     }
      
      /**
-     * Sets up the primary stage with the appropriate layout based on the current state.
+     * Shows the layout matching the current state: the search layout when no
+     * location is selected, otherwise the weather layout. Both layouts are
+     * built once and kept in the same scene; showing the weather layout only
+     * pushes the loaded data to the view model.
      */
     private void setStage() {
         String currentLocation = state.getCurrentLocation();
-        HourlyWeatherDataEntry currentWeather = state.getCurrentWeather();
         
         if (currentLocation.isEmpty()) {
-            VBox searchLayout = getSearchLayout();
-            Scene scene2 = new Scene(searchLayout, 400, 600);
-            scene2.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
-            stage.setScene(scene2);
+            searchHistoryView.getItems().setAll(state.getHistory());
+            scene.setRoot(searchLayout);
+            refreshFavoriteWeathers();
         } else {
-            mainLayout = new VBox();
-            mainLayout.getChildren().add(getTopBar());
-            mainLayout.getChildren().add(getCurrentWeatherBox());
-            mainLayout.getChildren().add(getTitleBar("4-day Forecast"));
-            mainLayout.getChildren().add(getDailyForecastsBox());
-            mainLayout.getChildren().add(getTitleBar("Hourly Forecast"));
-            hourlyForecastBox = getHourlyForecastBox(currentWeather.getDate());
-            mainLayout.getChildren().add(hourlyForecastBox);
-            Scene scene1 = new Scene(mainLayout, 400, 600);
-            scene1.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
-            stage.setScene(scene1);
+            viewModel.refresh();
+            scene.setRoot(mainLayout);
         }
-        stage.setResizable(false);
+    }
+
+     /**
+     * Creates the layout showing the weather of the current location.
+     * The nodes are updated by the listeners of the view model.
+     * @return The VBox containing the weather layout.
+     */
+    private VBox getMainLayout() {
+        VBox layout = new VBox();
+        layout.getChildren().add(getTopBar());
+        layout.getChildren().add(getAsOfLabel());
+        layout.getChildren().add(getCurrentWeatherBox());
+        layout.getChildren().add(getTitleBar("4-day Forecast"));
+        layout.getChildren().add(getDailyForecastsBox());
+        layout.getChildren().add(getTitleBar("Hourly Forecast"));
+        layout.getChildren().add(getHourlyForecastBox());
+        return layout;
     }
 
      /**
@@ -400,10 +256,10 @@ public class WeatherApp extends Application {
      * @return The top bar as a ToolBar.
      */ 
     private ToolBar getTopBar() {
-        String currentLocation = state.getCurrentLocation();
         ToolBar topBar = new ToolBar();
 
-        Label locationLabel = new Label(currentLocation);
+        Label locationLabel = new Label();
+        locationLabel.textProperty().bind(viewModel.locationProperty());
         locationLabel.getStyleClass().add("location-label");
         
         Button searchButton = new Button("Search");
@@ -413,15 +269,7 @@ public class WeatherApp extends Application {
         });
         
         Button unitButton = new Button("Imperial/Metric");
-        unitButton.setOnAction(e -> {
-            state.changeUnits();
-            try {
-                state.loadWeatherData();
-                setStage();
-            } catch (Exception ex) {
-                System.err.println(ex);
-            }
-        });
+        unitButton.setOnAction(e -> viewModel.toggleUnits());
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
@@ -430,75 +278,70 @@ public class WeatherApp extends Application {
         return topBar;
     }
 
+    /**
+     * Creates a label telling how old the shown weather data is. The label
+     * is only shown while the data is from an earlier session.
+     * @return The "as of" label.
+     */
+    private Label getAsOfLabel() {
+        Label asOfLabel = new Label();
+        asOfLabel.getStyleClass().add("as-of");
+        asOfLabel.textProperty().bind(viewModel.asOfProperty());
+        asOfLabel.visibleProperty().bind(viewModel.asOfProperty().isNotEmpty());
+        asOfLabel.managedProperty().bind(asOfLabel.visibleProperty());
+        return asOfLabel;
+    }
+
     /**
      * Creates a VBox containing current weather information.
      * @return The VBox containing current weather information.
-     */    
+     */
     private VBox getCurrentWeatherBox() {
-        HourlyWeatherDataEntry currentWeather = state.getCurrentWeather();
-        String currentTempUnit = state.getTempUnits();
-        String currentWsUnit = state.getWsUnits();
-        String currentHour = currentWeather.getHours();
-        
         VBox weatherBox = new VBox();
         weatherBox.getStyleClass().add("current-weather");
         
-        String currentDate = currentWeather.getDate();
-        Label weatherLabel = new Label("Current weather on " + currentDate 
-                + " at " + currentHour + ":00" );
-        
-        String weatherId = currentWeather.getWeatherId();
-        boolean isDayTime = currentWeather.isDayTime();
-        ImageView weatherIcon = getWeatherIcon(weatherId, isDayTime);
-        weatherIcon.setFitWidth(90);
-        weatherIcon.setFitHeight(90);
-
-        String currentTemp = currentWeather.getTemp() + currentTempUnit; 
-        Label iconTempLabel = new Label(currentTemp, weatherIcon); 
-        iconTempLabel.getStyleClass().add("main-temp");
-        
-        String feelsLikeText = "Feels like " + currentWeather.getFeelsLike() 
-                + currentTempUnit;
-        Label feelsLikeLabel = new Label(feelsLikeText);
-        
-        String windText = "Wind speed: " + currentWeather.getWindSpeed() + " " 
-                + currentWsUnit;
-        Label windLabel = new Label(windText);
+        currentTempLabel.setGraphic(currentIcon);
+        currentTempLabel.getStyleClass().add("main-temp");
         
-        String humidityText = "Humidity: " + currentWeather.getHumidity();
-        Label humidityLabel = new Label(humidityText);
-        
-        HBox windHumidityBox = new HBox(windLabel, humidityLabel);
+        HBox windHumidityBox = new HBox(currentWindLabel, currentHumidityLabel);
         windHumidityBox.getStyleClass().add("centered-spaced");
         
-        weatherBox.getChildren().addAll(weatherLabel, iconTempLabel, feelsLikeLabel, 
+        weatherBox.getChildren().addAll(currentWeatherLabel, currentTempLabel, currentFeelsLikeLabel, 
                 windHumidityBox);
+
+        viewModel.currentWeatherProperty().addListener((observable, oldValue, newValue) -> updateCurrentWeather());
+        viewModel.unitsProperty().addListener((observable, oldValue, newValue) -> updateCurrentWeather());
         return weatherBox;
     }
 
-     /**
-     * Retrieves the appropriate weather icon based on weather ID and time of day.
-     * @param weatherId The weather ID.
-     * @param isDayTime True if it's daytime, false otherwise.
-     * @return An ImageView containing the weather icon.
+    /**
+     * Shows the current weather of the view model in the current weather box.
      */
-    private ImageView getWeatherIcon(String weatherId, boolean isDayTime) {
-        String iconPath = "/images/error.png";
-        if (icons.containsKey(weatherId)) {
-            Map<String, String> weatherIcons = icons.get(weatherId);
-            iconPath = isDayTime ? weatherIcons.get("day") : weatherIcons.get("night");
+    private void updateCurrentWeather() {
+        HourlyWeatherDataEntry currentWeather = viewModel.currentWeatherProperty().get();
+        if (currentWeather == null) {
+            return;
         }
-        ImageView weatherIcon = new ImageView(new Image(WeatherApp.class.getResourceAsStream(iconPath)));
-        weatherIcon.setFitWidth(50);
-        weatherIcon.setFitHeight(50);
-        return weatherIcon;
+        UnitSystem units = viewModel.unitsProperty().get();
+        String currentTempUnit = units.getTempUnit();
+        
+        currentWeatherLabel.setText("Current weather on " + currentWeather.getDate() 
+                + " at " + currentWeather.getHours() + ":00");
+        currentIcon.setImage(IconCache.getIcon(currentWeather.getConditionCode(), 
+                currentWeather.isDayTime(), IconCache.LARGE_SIZE));
+        currentTempLabel.setText(units.formatTemp(currentWeather.getTemp()) + currentTempUnit);
+        currentFeelsLikeLabel.setText("Feels like " + units.formatTemp(currentWeather.getFeelsLike()) 
+                + currentTempUnit);
+        currentWindLabel.setText("Wind speed: " + units.formatWindSpeed(currentWeather.getWindSpeed()) + " " 
+                + units.getWsUnit());
+        currentHumidityLabel.setText("Humidity: " + currentWeather.getHumidity() + " %");
     }
-    
+
     /**
      * Creates a HBox for displaying a title bar.
      * @param text The text to display in the title bar.
      * @return The HBox containing the title bar.
-     */    
+     */
     private HBox getTitleBar(String text) {
         HBox titleBar = new HBox();
         titleBar.getStyleClass().add("title-bar");
@@ -513,96 +356,87 @@ public class WeatherApp extends Application {
      * @return The HBox containing daily weather forecasts.
      */
     private HBox getDailyForecastsBox() {
-        List<DailyWeatherDataEntry> dailyWeathers = state.getDailyWeathers();
-        HBox forecastBox = new HBox();
-        forecastBox.getStyleClass().add("daily-forecast");
+        dailyForecastsBox.getStyleClass().add("daily-forecast");
         
-        dailyWeatherBoxes.clear();
-
-        for (var day : dailyWeathers) {      
-            VBox dayBox = new VBox();
-            dayBox.setAlignment(Pos.CENTER);
-            dayBox.setSpacing(5);
-            
-            String date = day.getDate();
-            Label dateLabel = new Label(date);
-            String MinMaxTemp = day.getTempMin() + ".." + day.getTempMax();
-            Label tempLabel = new Label(MinMaxTemp);
-            String weatherId = day.getWeatherId();
-            ImageView weatherIcon = getWeatherIcon(weatherId, true);
-            
-            dayBox.setOnMouseClicked(event -> {
-                for (var dailyBox : dailyWeatherBoxes) {
-                   dailyBox.getStyleClass().clear();
+        viewModel.getDailyWeathers().addListener((ListChangeListener<DailyWeatherDataEntry>) change -> updateDailyForecasts());
+        viewModel.unitsProperty().addListener((observable, oldValue, newValue) -> updateDailyForecasts());
+        viewModel.selectedDayProperty().addListener((observable, oldValue, newValue) -> updateDailyForecasts());
+        return dailyForecastsBox;
+    }
+
+    /**
+     * Shows the daily forecast of the view model in the day tiles, creating
+     * tiles only when there are more days than before.
+     */
+    private void updateDailyForecasts() {
+        List<DailyWeatherDataEntry> dailyWeathers = viewModel.getDailyWeathers();
+        UnitSystem units = viewModel.unitsProperty().get();
+        long selectedDay = viewModel.selectedDayProperty().get();
+
+        while (dayTiles.size() < dailyWeathers.size()) {
+            DayTile tile = new DayTile();
+            dayTiles.add(tile);
+            dailyForecastsBox.getChildren().add(tile.box);
+        }
+        for (int i = 0; i < dayTiles.size(); i++) {
+            DayTile tile = dayTiles.get(i);
+            boolean isShown = i < dailyWeathers.size();
+            tile.box.setVisible(isShown);
+            tile.box.setManaged(isShown);
+            if (isShown) {
+                tile.show(dailyWeathers.get(i), units, selectedDay);
+            }
+        }
+    }
+
+    /**
+     * A tile of the daily forecast, reused for whichever day it shows.
+     */
+    private final class DayTile {
+        private final VBox box = new VBox();
+        private final Label dateLabel = new Label();
+        private final ImageView weatherIcon = new ImageView();
+        private final Label tempLabel = new Label();
+        private long epochDay;
+
+        private DayTile() {
+            box.setAlignment(Pos.CENTER);
+            box.setSpacing(5);
+            box.getChildren().addAll(dateLabel, weatherIcon, tempLabel);
+            box.setOnMouseClicked(event -> viewModel.selectDay(epochDay));
+        }
+
+        private void show(DailyWeatherDataEntry day, UnitSystem units, long selectedDay) {
+            epochDay = day.getEpochDay();
+            dateLabel.setText(day.getDate());
+            weatherIcon.setImage(IconCache.getIcon(day.getConditionCode(), true, IconCache.SMALL_SIZE));
+            tempLabel.setText(units.formatTemp(day.getTempMin()) + ".." + units.formatTemp(day.getTempMax()));
+            if (epochDay == selectedDay) {
+                if (!box.getStyleClass().contains("selected")) {
+                    box.getStyleClass().add("selected");
                 }
-                dayBox.getStyleClass().add("selected");
-                
-                mainLayout.getChildren().remove(hourlyForecastBox);
-                hourlyForecastBox = getHourlyForecastBox(date);
-                mainLayout.getChildren().add(hourlyForecastBox);
-            });
-            
-            dailyWeatherBoxes.add(dayBox);
-            dayBox.getChildren().addAll(dateLabel, weatherIcon, tempLabel);
-            forecastBox.getChildren().add(dayBox);
+            } else {
+                box.getStyleClass().remove("selected");
+            }
         }
-        return forecastBox;
     }
 
      /**
-     * Creates a ScrollPane containing hourly weather forecasts for a specific date.
-     * @param date The date for which to retrieve hourly forecasts.
-     * @return The ScrollPane containing hourly weather forecasts.
+     * Creates a virtualized list of the hourly weather forecasts of the selected day.
+     * The list is backed by the view model and reuses a fixed pool of cells.
+     * @return The ListView containing hourly weather forecasts.
      */
-    private ScrollPane getHourlyForecastBox(String date) {
-        List<HourlyWeatherDataEntry> hourlyWeathers = state.getHourlyWeathers();
-        String currentTempUnit = state.getTempUnits();
-        String currentWsUnit = state.getWsUnits();
-        
-        VBox hourlyForecasts = new VBox();
+    private ListView<HourlyWeatherDataEntry> getHourlyForecastBox() {
+        ListView<HourlyWeatherDataEntry> hourlyForecasts = new ListView<>(viewModel.getSelectedHours());
         hourlyForecasts.getStyleClass().add("hourly-forecast");
-        
-        int counter = 0;
-        for (var hour : hourlyWeathers) {
-            if (!date.equals(hour.getDate())) {
-                continue;
-            }
-            GridPane hourBox = new GridPane();
-            hourBox.setHgap(10);
-            hourBox.getStyleClass().add("centered-spaced");
-            
-            if (counter % 2 != 0) {
-                hourBox.getStyleClass().add("odd-row");
-            }
-            counter++;
-            
-            String weatherId = hour.getWeatherId();
-            boolean isDayTime = hour.isDayTime();
-            ImageView weatherIcon = getWeatherIcon(weatherId, isDayTime);
-            
-            String time = hour.getHours();
-            Label timeLabel = new Label(time);
-            
-            String temp = hour.getTemp() + currentTempUnit;
-            Label tempLabel = new Label(temp);
-            
-            String wind = "Wind: " + hour.getWindSpeed() + " " + currentWsUnit;
-            Label windLabel = new Label(wind);
-            
-            String humidity = "Humidity: " + hour.getHumidity();
-            Label humidityLabel = new Label(humidity);
-            
-            hourBox.add(timeLabel, 0, 0);
-            hourBox.add(weatherIcon, 1, 0);
-            hourBox.add(tempLabel, 2, 0);
-            hourBox.add(windLabel, 3, 0);
-            hourBox.add(humidityLabel, 4, 0);
-            
-            hourlyForecasts.getChildren().add(hourBox);
-        }
-        ScrollPane scrollPane = new ScrollPane(hourlyForecasts);
-        scrollPane.setFitToWidth(true);
-        return scrollPane;
+        hourlyForecasts.setFixedCellSize(HourlyForecastCell.HEIGHT);
+        hourlyForecasts.setFocusTraversable(false);
+        hourlyForecasts.setCellFactory(listView -> new HourlyForecastCell(viewModel.unitsProperty()));
+        VBox.setVgrow(hourlyForecasts, Priority.ALWAYS);
+        
+        viewModel.unitsProperty().addListener((observable, oldValue, newValue) -> hourlyForecasts.refresh());
+        viewModel.getSelectedHours().addListener((ListChangeListener<HourlyWeatherDataEntry>) change -> hourlyForecasts.scrollTo(0));
+        return hourlyForecasts;
     }
     
    /**
@@ -613,78 +447,217 @@ public class WeatherApp extends Application {
         VBox layout = new VBox();
         layout.getStyleClass().add("search-layout");
         
-        TextField search = new TextField();
+        TextField search = getSearchField();
         Button getWeatherButton = new Button("Get Weather");
         Button addFavoriteButton = new Button("Add to favorites");
         getWeatherButton.setOnAction(event -> handleNewSearch(search.getText()));
-        addFavoriteButton.setOnAction(event -> {
-            
-            // Added functionality to deal with trying to add
-            // erroneous favorites
-            try {
-                infoText.setText("");
-                if (state.addFavorite(search.getText())) {
-                    updateFavoritesPane();
-                }
-            } catch (Exception e) {
-                infoText.setText(e.getMessage());
-            }
-        });
+        addFavoriteButton.setOnAction(event -> handleAddFavorite(search.getText()));
 
         HBox favoritesTitle = getTitleBar("Favorites:");
         favoritesPane = getFavoritesGridPane();
+        ScrollPane favoritesScroll = new ScrollPane(favoritesPane);
+        favoritesScroll.setFitToWidth(true);
+        favoritesScroll.setMaxHeight(FAVORITES_HEIGHT);
+        favoritesScroll.getStyleClass().add("favorites-dashboard");
         HBox searchHistTitle = getTitleBar("Search History:");
-        ListView searchHistoryView = getSearchHistoryView();
+        searchHistoryView = getSearchHistoryView();
+
+        // Requests run in the background; the controls starting new ones wait for them
+        ProgressIndicator loadingIndicator = new ProgressIndicator();
+        loadingIndicator.setMaxSize(30, 30);
+        loadingIndicator.visibleProperty().bind(viewModel.loadingProperty());
+        loadingIndicator.managedProperty().bind(viewModel.loadingProperty());
+        for (var control : List.of(search, getWeatherButton, addFavoriteButton, favoritesPane, searchHistoryView)) {
+            control.disableProperty().bind(viewModel.loadingProperty());
+        }
         
-        layout.getChildren().addAll(infoText, search, getWeatherButton, addFavoriteButton, 
-                favoritesTitle, favoritesPane, searchHistTitle, searchHistoryView);
+        layout.getChildren().addAll(infoText, loadingIndicator, search, getWeatherButton, addFavoriteButton, 
+                favoritesTitle, favoritesScroll, searchHistTitle, searchHistoryView);
         return layout;
     }
     
     /**
-     * Updates the favorites pane with the latest list of favorite locations.
-     */    
+     * Creates the search field, which suggests known cities while typing.
+     * Suggestions come from the city index of the program state and are
+     * looked up once typing pauses, without any network calls.
+     * @return The search field.
+     */
+    private TextField getSearchField() {
+        TextField search = new TextField();
+        ContextMenu suggestionsMenu = new ContextMenu();
+        PauseTransition debounce = new PauseTransition(SUGGESTION_DELAY);
+        debounce.setOnFinished(event -> {
+            List<String> suggestions = state.getSuggestions(search.getText(), MAX_SUGGESTIONS);
+            if (suggestions.isEmpty() || !search.isFocused()) {
+                suggestionsMenu.hide();
+                return;
+            }
+            List<MenuItem> items = new ArrayList<>();
+            for (String city : suggestions) {
+                MenuItem item = new MenuItem(city);
+                item.setOnAction(e -> {
+                    search.setText(city);
+                    suggestionsMenu.hide();
+                    handleNewSearch(city);
+                });
+                items.add(item);
+            }
+            suggestionsMenu.getItems().setAll(items);
+            if (!suggestionsMenu.isShowing()) {
+                suggestionsMenu.show(search, Side.BOTTOM, 0, 0);
+            }
+        });
+        search.textProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue.isBlank()) {
+                debounce.stop();
+                suggestionsMenu.hide();
+            } else {
+                debounce.playFromStart();
+            }
+        });
+        search.setOnAction(event -> {
+            suggestionsMenu.hide();
+            handleNewSearch(search.getText());
+        });
+        return search;
+    }
+    
+    /**
+     * Updates the favorites dashboard with the latest list of favorite
+     * locations. The tile of a favorite is kept as long as it is a favorite,
+     * and shows the weather of the latest refresh until a new one arrives.
+     */
     private void updateFavoritesPane() {
+        TreeSet<String> favorites = state.getFavorites();
+        favoriteTiles.keySet().retainAll(favorites);
+        Map<String, HourlyWeatherDataEntry> weathers = state.getFavoriteWeathers();
+        UnitSystem units = viewModel.unitsProperty().get();
+
         favoritesPane.getChildren().clear();
-        favoritesPane.getChildren().addAll(getFavoritesGridPane().getChildren());
+        int row = 0;
+        for (String favorite : favorites) {
+            FavoriteTile tile = favoriteTiles.computeIfAbsent(favorite, FavoriteTile::new);
+            tile.show(weathers.get(favorite), units);
+            tile.addTo(favoritesPane, row);
+            row++;
+        }
     }
     
     /**
-     * Creates a GridPane containing the list of favorite locations.
-     * @return The GridPane containing the list of favorite locations.
-     */    
+     * Creates the favorites dashboard, showing the current weather of every
+     * favorite location.
+     * @return The GridPane containing the favorite locations.
+     */
     private GridPane getFavoritesGridPane() {
-        GridPane gridPane = new GridPane();
-        gridPane.getStyleClass().add("centered-spaced");
-        gridPane.setHgap(5);
-        gridPane.setVgap(5); 
+        favoritesPane = new GridPane();
+        favoritesPane.getStyleClass().add("centered-spaced");
+        favoritesPane.setHgap(10);
+        favoritesPane.setVgap(5); 
+        updateFavoritesPane();
+        viewModel.unitsProperty().addListener((observable, oldValue, newValue) -> updateFavoritesPane());
+        return favoritesPane;
+    }
 
-        TreeSet<String> favorites = state.getFavorites();
-        int row = 0;
-        for (String favorite : favorites) {
-            Label label = new Label(favorite);
-            label.getStyleClass().add("favorite");
-            label.setOnMouseClicked(event -> handleNewSearch(label.getText()));
+    /**
+     * Fetches the current weather of all favorites on a background thread.
+     * The fetches run in parallel, a few at a time, and each tile is updated
+     * as soon as the weather of its favorite arrives. Only one refresh runs
+     * at a time; a refresh requested meanwhile, such as for a favorite added
+     * during it, runs once the current one is done.
+     */
+    private void refreshFavoriteWeathers() {
+        if (favoriteTiles.isEmpty()) {
+            return;
+        }
+        if (favoritesRefreshing) {
+            favoritesRefreshQueued = true;
+            return;
+        }
+        favoritesRefreshing = true;
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                state.refreshFavorites((city, weather) -> Platform.runLater(() -> showFavoriteWeather(city, weather)));
+                return null;
+            }
+        };
+        task.setOnSucceeded(event -> finishFavoritesRefresh());
+        task.setOnFailed(event -> {
+            System.err.println("Failed to refresh favorites: " + task.getException().getMessage());
+            finishFavoritesRefresh();
+        });
+        LOAD_EXECUTOR.execute(task);
+    }
 
-            Button removeButton = new Button("Remove");
+    /**
+     * Ends a favorites refresh and starts the one requested while it ran, if any.
+     */
+    private void finishFavoritesRefresh() {
+        favoritesRefreshing = false;
+        if (favoritesRefreshQueued) {
+            favoritesRefreshQueued = false;
+            refreshFavoriteWeathers();
+        }
+    }
+
+    /**
+     * Shows the weather of a favorite in its tile, if it is still a favorite.
+     * @param city The favorite.
+     * @param weather The current weather of the favorite.
+     */
+    private void showFavoriteWeather(String city, HourlyWeatherDataEntry weather) {
+        FavoriteTile tile = favoriteTiles.get(city);
+        if (tile != null) {
+            tile.show(weather, viewModel.unitsProperty().get());
+        }
+    }
+
+    /**
+     * A row of the favorites dashboard: the current weather of a favorite,
+     * which opens its full forecast when clicked.
+     */
+    private final class FavoriteTile {
+        private final ImageView weatherIcon = new ImageView();
+        private final Label nameLabel;
+        private final Label tempLabel = new Label();
+        private final Button removeButton = new Button("Remove");
+
+        private FavoriteTile(String favorite) {
+            nameLabel = new Label(favorite);
+            nameLabel.getStyleClass().add("favorite");
+            nameLabel.setOnMouseClicked(event -> handleNewSearch(favorite));
+            weatherIcon.setOnMouseClicked(event -> handleNewSearch(favorite));
+            tempLabel.getStyleClass().add("favorite-temp");
             removeButton.setOnAction(event -> {
                 state.removeFavorite(favorite);
                 updateFavoritesPane();
             });
+        }
 
-            gridPane.add(label, 0, row); 
-            gridPane.add(removeButton, 1, row); 
-            row++;
+        private void addTo(GridPane grid, int row) {
+            grid.add(weatherIcon, 0, row);
+            grid.add(nameLabel, 1, row);
+            grid.add(tempLabel, 2, row);
+            grid.add(removeButton, 3, row);
+        }
+
+        private void show(HourlyWeatherDataEntry weather, UnitSystem units) {
+            if (weather == null) {
+                weatherIcon.setImage(null);
+                tempLabel.setText("--");
+                return;
+            }
+            weatherIcon.setImage(IconCache.getIcon(weather.getConditionCode(), weather.isDayTime(), IconCache.FAVORITE_SIZE));
+            tempLabel.setText(units.formatTemp(weather.getTemp()) + units.getTempUnit());
         }
-        return gridPane;
     }
 
     /**
      * Creates a ListView for displaying the search history.
      * @return The ListView containing the search history.
-     */    
+     */
     private ListView<String> getSearchHistoryView() {
-        LinkedList<String> searchHistory = state.getHistory();
+        List<String> searchHistory = state.getHistory();
         ListView<String> listView = new ListView<>();
         ObservableList<String> items = FXCollections.observableArrayList(searchHistory);
         listView.setItems(items);
@@ -698,19 +671,129 @@ public class WeatherApp extends Application {
     /**
      * Handles a new search by updating the current location and loading weather data.
      * @param searchText The text entered for the search.
-     */    
+     */
     private void handleNewSearch(String searchText) {
-        try {
-            state.setCurrentLocation(searchText);
-            state.loadWeatherData();
-            infoText.setText("");
-            setStage();
-            
-        } catch (Exception e) {
-            System.err.println(e.getMessage());
-            state.setCurrentLocation("");
-            infoText.setText("Error loading weather data");
+        loadWeather(searchText, true);
+    }
+
+    /**
+     * Loads the weather data of a location on a background thread and shows
+     * it once loaded. The window stays responsive while the requests are in
+     * flight, and only one load runs at a time.
+     * @param location The location to load the weather data of.
+     * @param reportFailure True to tell the user if loading fails.
+     */
+    private void loadWeather(String location, boolean reportFailure) {
+        if (viewModel.isLoading()) {
+            return;
         }
-        
+        // A search supersedes the background refresh of the previous location
+        if (weatherRefresh != null) {
+            weatherRefresh.cancel(true);
+            weatherRefresh = null;
+        }
+        infoText.setText("Loading weather data...");
+        runInBackground(() -> state.loadWeatherData(location), 
+                () -> {
+                    infoText.setText("");
+                    setStage();
+                },
+                e -> {
+                    System.err.println(e.getMessage());
+                    state.setCurrentLocation("");
+                    infoText.setText(reportFailure ? "Error loading weather data" : "");
+                });
+    }
+
+    /**
+     * Loads fresh weather data of the shown location on a background thread.
+     * The shown data is kept if loading fails, so the app stays usable offline,
+     * and a result arriving after the user has left the location is dropped.
+     * The refresh does not put the view in the loading state, so the user can
+     * search or add favorites while it is in flight; a search cancels it.
+     */
+    private void refreshWeather() {
+        weatherRefresh = newTask(state::refreshWeatherData, 
+                () -> {
+                    weatherRefresh = null;
+                    if (scene.getRoot() == mainLayout) {
+                        viewModel.refresh();
+                    }
+                },
+                e -> {
+                    weatherRefresh = null;
+                    System.err.println(e.getMessage());
+                });
+        LOAD_EXECUTOR.execute(weatherRefresh);
+    }
+
+    /**
+     * Resolves a location and adds it to the favorites on a background thread.
+     * @param location The location to add.
+     */
+    private void handleAddFavorite(String location) {
+        if (viewModel.isLoading()) {
+            return;
+        }
+        // Added functionality to deal with trying to add
+        // erroneous favorites
+        infoText.setText("");
+        runInBackground(() -> state.addFavorite(location), 
+                () -> {
+                    updateFavoritesPane();
+                    refreshFavoriteWeathers();
+                },
+                e -> infoText.setText(e.getMessage()));
+    }
+
+    /**
+     * Background work that may fail.
+     */
+    @FunctionalInterface
+    private interface BackgroundWork {
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs work on the load executor as a Task. The view model shows the
+     * loading state until the task completes, and the completion handlers
+     * run on the JavaFX Application Thread.
+     * @param work The work to run.
+     * @param onSuccess Run if the work completes normally.
+     * @param onFailure Run with the exception if the work fails.
+     */
+    private void runInBackground(BackgroundWork work, Runnable onSuccess, Consumer<Throwable> onFailure) {
+        Task<Void> task = newTask(work, 
+                () -> {
+                    viewModel.setLoading(false);
+                    onSuccess.run();
+                },
+                e -> {
+                    viewModel.setLoading(false);
+                    onFailure.accept(e);
+                });
+        viewModel.setLoading(true);
+        LOAD_EXECUTOR.execute(task);
+    }
+
+    /**
+     * Wraps work in a Task whose completion handlers run on the JavaFX
+     * Application Thread. A cancelled task runs neither handler.
+     * @param work The work to run.
+     * @param onSuccess Run if the work completes normally.
+     * @param onFailure Run with the exception if the work fails.
+     * @return The task, not yet started.
+     */
+    private Task<Void> newTask(BackgroundWork work, Runnable onSuccess, Consumer<Throwable> onFailure) {
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                work.run();
+                return null;
+            }
+        };
+        task.setOnSucceeded(event -> onSuccess.run());
+        task.setOnFailed(event -> onFailure.accept(task.getException()));
+        return task;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package fi.mqanaa.weatherapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Table of the OpenWeatherMap weather condition codes and their icons.
+ * The table is loaded once from the "conditions.properties" resource and
+ * indexed directly by the condition code, so looking up an icon is two
+ * array reads. The table holds no UI classes and can be used headless.
+ */
+public final class WeatherConditions {
+
+    /**
+     * The smallest condition code of the table.
+     */
+    public static final int MIN_CODE = 200;
+    /**
+     * The largest condition code of the table.
+     */
+    public static final int MAX_CODE = 804;
+    /**
+     * The icon shown for codes that are not in the table.
+     */
+    public static final String ERROR_ICON = "/images/error.png";
+
+    private static final String DESCRIPTOR = "/conditions.properties";
+    private static final String IMAGE_DIRECTORY = "/images/";
+    // Slot 0 of the icon list is the error icon, so unknown codes need no check
+    private static final List<String> ICON_PATHS = new ArrayList<>(List.of(ERROR_ICON));
+    private static final byte[] DAY_ICONS = new byte[MAX_CODE - MIN_CODE + 1];
+    private static final byte[] NIGHT_ICONS = new byte[MAX_CODE - MIN_CODE + 1];
+
+    static {
+        Properties descriptor = new Properties();
+        try (InputStream in = WeatherConditions.class.getResourceAsStream(DESCRIPTOR)) {
+            if (in == null) {
+                throw new IOException("Resource not found");
+            }
+            descriptor.load(in);
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError("Failed to load " + DESCRIPTOR + ": " + e.getMessage());
+        }
+        for (String key : descriptor.stringPropertyNames()) {
+            int code = Integer.parseInt(key.trim());
+            String[] icons = descriptor.getProperty(key).split(",");
+            if (code < MIN_CODE || code > MAX_CODE || icons.length != 2) {
+                throw new ExceptionInInitializerError("Invalid condition in " + DESCRIPTOR + ": " + key);
+            }
+            DAY_ICONS[code - MIN_CODE] = slotOf(IMAGE_DIRECTORY + icons[0].trim());
+            NIGHT_ICONS[code - MIN_CODE] = slotOf(IMAGE_DIRECTORY + icons[1].trim());
+        }
+    }
+
+    private WeatherConditions() {
+    }
+
+    private static byte slotOf(String iconPath) {
+        int slot = ICON_PATHS.indexOf(iconPath);
+        if (slot < 0) {
+            slot = ICON_PATHS.size();
+            ICON_PATHS.add(iconPath);
+        }
+        return (byte) slot;
+    }
+
+    /**
+     * Checks whether a condition code is in the table.
+     *
+     * @param conditionCode the condition code.
+     * @return true if the code has icons of its own.
+     */
+    public static boolean isKnown(int conditionCode) {
+        return conditionCode >= MIN_CODE && conditionCode <= MAX_CODE
+                && DAY_ICONS[conditionCode - MIN_CODE] != 0;
+    }
+
+    /**
+     * Returns the resource path of the icon of a condition.
+     *
+     * @param conditionCode the condition code.
+     * @param isDayTime true for the daytime icon, false for the nighttime icon.
+     * @return the resource path of the icon, or {@link #ERROR_ICON} for an unknown code.
+     */
+    public static String getIconPath(int conditionCode, boolean isDayTime) {
+        if (conditionCode < MIN_CODE || conditionCode > MAX_CODE) {
+            return ERROR_ICON;
+        }
+        byte[] slots = isDayTime ? DAY_ICONS : NIGHT_ICONS;
+        return ICON_PATHS.get(slots[conditionCode - MIN_CODE]);
+    }
+
+    /**
+     * Returns the resource paths of all the icons of the table.
+     *
+     * @return the distinct icon paths, including {@link #ERROR_ICON}.
+     */
+    public static List<String> getIconPaths() {
+        return Collections.unmodifiableList(ICON_PATHS);
+    }
+}
@@ -2,25 +2,26 @@ package fi.mqanaa.weatherapp;
 
 /**
  * Represents a simple weather data entry, featuring all the common attributes of the other weather data classes.
+ * An entry is a view over one position of a {@link ForecastSeries}.
  */
 public class WeatherDataEntry {
     /**
-    * ID for the weather.
+    * The series holding the data of this entry.
     */
-    final private String weatherId;
+    final protected ForecastSeries series;
     /**
-    * Date in string format.
+    * Position of this entry in the series.
     */    
-    final private String date;
+    final protected int index;
 
     /**
-    * Constructor for setting weather ID and date.
-    * @param weatherId ID for the weather.
-    * @param date Date in string format.
+    * Constructor for a view over a data point of a series.
+    * @param series The series holding the data.
+    * @param index Position of the data point in the series.
     */    
-    public WeatherDataEntry(String weatherId, String date) {
-        this.weatherId = weatherId;
-        this.date = date;
+    public WeatherDataEntry(ForecastSeries series, int index) {
+        this.series = series;
+        this.index = index;
     }
 
     /**
@@ -28,7 +29,15 @@ public class WeatherDataEntry {
     * @return ID of the weather.
     */        
     public String getWeatherId() {
-        return weatherId;
+        return Integer.toString(series.getConditionCode(index));
+    }
+
+    /**
+    * Getter for the weather condition code.
+    * @return the weather condition code, e.g. 800 for a clear sky.
+    */        
+    public int getConditionCode() {
+        return series.getConditionCode(index);
     }
 
     /**
@@ -36,6 +45,31 @@ public class WeatherDataEntry {
     * @return the date the weather entry is associated with.
     */     
     public String getDate() {
-        return date;
+        return series.formatDate(index);
+    }
+
+    /**
+    * Getter for the time of the entry.
+    * @return the time in seconds since the epoch.
+    */     
+    public long getEpochSecond() {
+        return series.getEpochSecond(index);
+    }
+
+    /**
+    * Getter for the day of the entry, in the local time of the location.
+    * Entries of the same day have the same epoch day, whichever series they belong to.
+    * @return the number of days since the epoch.
+    */     
+    public long getEpochDay() {
+        return series.getEpochDay(index);
+    }
+
+    /**
+    * Getter for the series the entry is a view over.
+    * @return the series holding the data of this entry.
+    */     
+    public ForecastSeries getSeries() {
+        return series;
     }
 }
@@ -0,0 +1,148 @@
+package fi.mqanaa.weatherapp;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.util.Locale;
+
+/**
+ * Formats weather values for display.
+ * The labels that are displayed over and over again, whole degree
+ * temperatures, hours of the day and dates, are built once and reused, so
+ * formatting a forecast does not allocate anything but the few labels that
+ * are not in the tables yet.
+ */
+public final class WeatherFormatter {
+
+    private static final int MIN_TABLE_TEMP = -80;
+    private static final int MAX_TABLE_TEMP = 60;
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final int SECONDS_PER_HOUR = 3600;
+    private static final int DAY_CACHE_SIZE = 64;
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.");
+
+    private static final String[] TEMP_LABELS = new String[MAX_TABLE_TEMP - MIN_TABLE_TEMP + 1];
+    private static final String[] HOUR_LABELS = new String[24];
+    // Slots are replaced as a whole, so a racing reader sees either the old or the new label
+    private static final DayLabel[] DAY_LABELS = new DayLabel[DAY_CACHE_SIZE];
+
+    static {
+        for (int temp = MIN_TABLE_TEMP; temp <= MAX_TABLE_TEMP; temp++) {
+            TEMP_LABELS[temp - MIN_TABLE_TEMP] = (temp > 0 ? "+" : temp == 0 ? " " : "") + temp + "°";
+        }
+        for (int hour = 0; hour < HOUR_LABELS.length; hour++) {
+            HOUR_LABELS[hour] = (hour < 10 ? "0" : "") + hour;
+        }
+    }
+
+    private WeatherFormatter() {
+    }
+
+    /**
+     * Formats a temperature with an explicit sign and a degree symbol,
+     * rounded to whole degrees.
+     *
+     * @param temp the temperature in any unit.
+     * @return the formatted temperature, e.g. "+5°", " 0°" or "-3°".
+     */
+    public static String formatTemp(double temp) {
+        if (Double.isNaN(temp)) {
+            return "NaN°";
+        }
+        // Round half away from zero like String.format does
+        double rounded = Math.copySign(Math.floor(Math.abs(temp) + 0.5), temp);
+        if (rounded == 0 && temp != 0) {
+            return temp < 0 ? "-0°" : "+0°";
+        }
+        if (rounded < MIN_TABLE_TEMP || rounded > MAX_TABLE_TEMP) {
+            String formattedTemp = String.format("%.0f°", temp);
+            return formattedTemp.startsWith("-") ? formattedTemp : "+" + formattedTemp;
+        }
+        return TEMP_LABELS[(int) rounded - MIN_TABLE_TEMP];
+    }
+
+    /**
+     * Formats a wind speed with two decimals.
+     *
+     * @param windSpeed the wind speed in any unit.
+     * @return the formatted wind speed, e.g. "3.40".
+     */
+    public static String formatWindSpeed(double windSpeed) {
+        if (Double.isNaN(windSpeed) || Double.isInfinite(windSpeed)) {
+            return String.format("%.2f", windSpeed);
+        }
+        long hundredths = Math.round(Math.abs(windSpeed) * 100);
+        StringBuilder builder = new StringBuilder(8);
+        if (windSpeed < 0 && hundredths != 0) {
+            builder.append('-');
+        }
+        long fraction = hundredths % 100;
+        return builder.append(hundredths / 100).append('.').append(fraction < 10 ? "0" : "").append(fraction).toString();
+    }
+
+    /**
+     * Formats the hour of the day of a point in time, e.g. "07".
+     *
+     * @param epochSecond the time in seconds since the epoch.
+     * @param utcOffsetSeconds the UTC offset of the location in seconds.
+     * @return the two-digit hour in the local time of the location.
+     */
+    public static String formatHours(long epochSecond, int utcOffsetSeconds) {
+        long secondOfDay = Math.floorMod(epochSecond + utcOffsetSeconds, SECONDS_PER_DAY);
+        return HOUR_LABELS[(int) (secondOfDay / SECONDS_PER_HOUR)];
+    }
+
+    /**
+     * Formats the date of a point in time, e.g. "Mon 01.02.".
+     *
+     * @param epochSecond the time in seconds since the epoch.
+     * @param utcOffsetSeconds the UTC offset of the location in seconds.
+     * @return the weekday and date in the local time of the location.
+     */
+    public static String formatDate(long epochSecond, int utcOffsetSeconds) {
+        return formatEpochDay(epochDay(epochSecond, utcOffsetSeconds));
+    }
+
+    /**
+     * Returns the day of a point in time.
+     *
+     * @param epochSecond the time in seconds since the epoch.
+     * @param utcOffsetSeconds the UTC offset of the location in seconds.
+     * @return the number of days since the epoch in the local time of the location.
+     */
+    public static long epochDay(long epochSecond, int utcOffsetSeconds) {
+        return Math.floorDiv(epochSecond + utcOffsetSeconds, SECONDS_PER_DAY);
+    }
+
+    /**
+     * Formats a day, e.g. "Mon 01.02.".
+     *
+     * @param epochDay the number of days since the epoch.
+     * @return the weekday and date.
+     */
+    public static String formatEpochDay(long epochDay) {
+        int slot = Math.floorMod(epochDay, DAY_CACHE_SIZE);
+        DayLabel cached = DAY_LABELS[slot];
+        if (cached != null && cached.epochDay == epochDay) {
+            return cached.label;
+        }
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        String label = date.getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.US)
+                + " " + date.format(DATE_FORMATTER);
+        DAY_LABELS[slot] = new DayLabel(epochDay, label);
+        return label;
+    }
+
+    /**
+     * A cached label of a day.
+     */
+    private static final class DayLabel {
+        private final long epochDay;
+        private final String label;
+
+        private DayLabel(long epochDay, String label) {
+            this.epochDay = epochDay;
+            this.label = label;
+        }
+    }
+}
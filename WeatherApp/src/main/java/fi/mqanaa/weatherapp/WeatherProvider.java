@@ -0,0 +1,98 @@
+package fi.mqanaa.weatherapp;
+
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A source of geocoding and weather data.
+ * Weather data is requested for coordinates resolved by {@link #resolveLocation(String, Deadline)},
+ * so that a location is looked up once even when several kinds of data are needed for it.
+ */
+public interface WeatherProvider {
+
+    /**
+     * The maximum number of cities in one bulk request.
+     */
+    int MAX_GROUP_SIZE = 20;
+
+    /**
+     * Resolves a location to coordinates.
+     *
+     * @param location the name of the location.
+     * @param deadline the deadline of the operation the lookup belongs to.
+     * @return an array containing latitude at index 0, longitude at index 1 and the resolved name at index 2.
+     * @throws WeatherApiException with kind NOT_FOUND if the location does not exist,
+     *         or another kind if the lookup fails.
+     */
+    String[] resolveLocation(String location, Deadline deadline) throws WeatherApiException;
+
+    /**
+     * Gets the current weather for resolved coordinates.
+     *
+     * @param coordinates the latitude and longitude, as returned by {@link #resolveLocation(String, Deadline)}.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the current weather entry.
+     * @throws WeatherApiException if weather data cannot be fetched.
+     */
+    HourlyWeatherDataEntry getCurrentWeatherEntry(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException;
+
+    /**
+     * Gets the hourly forecast for resolved coordinates.
+     *
+     * @param coordinates the latitude and longitude, as returned by {@link #resolveLocation(String, Deadline)}.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the hourly forecast entries.
+     * @throws WeatherApiException if forecast data cannot be fetched.
+     */
+    List<HourlyWeatherDataEntry> getHourlyEntries(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException;
+
+    /**
+     * Gets the daily forecast for the next five days for resolved coordinates.
+     *
+     * @param coordinates the latitude and longitude, as returned by {@link #resolveLocation(String, Deadline)}.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the daily forecast entries.
+     * @throws WeatherApiException if daily data cannot be fetched.
+     */
+    List<DailyWeatherDataEntry> getDailyEntries(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException;
+
+    /**
+     * Gets the current weather for resolved coordinates together with the ID
+     * of the city the weather belongs to, for providers that can refresh
+     * cities in bulk with {@link #getCurrentWeatherEntries(List, String, Deadline)}.
+     * By default no city ID is known and the key of the result is null.
+     *
+     * @param coordinates the latitude and longitude, as returned by {@link #resolveLocation(String, Deadline)}.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the city ID, or null, mapped to the current weather entry.
+     * @throws WeatherApiException if weather data cannot be fetched.
+     */
+    default Map.Entry<Long, HourlyWeatherDataEntry> getCityCurrentWeatherEntry(String[] coordinates, String unitCode,
+            Deadline deadline) throws WeatherApiException {
+        return new AbstractMap.SimpleImmutableEntry<>(null, getCurrentWeatherEntry(coordinates, unitCode, deadline));
+    }
+
+    /**
+     * Gets the current weather of several cities with a single request.
+     * By default bulk requests are not supported.
+     *
+     * @param cityIds the IDs of the cities, as returned by {@link #getCityCurrentWeatherEntry(String[], String, Deadline)}.
+     * @param unitCode the unit system, "C" for metric or "F" for imperial.
+     * @param deadline the deadline of the operation the request belongs to.
+     * @return the current weather entries by city ID.
+     * @throws WeatherApiException with kind HTTP_ERROR if bulk requests are not supported,
+     *         or another kind if weather data cannot be fetched.
+     */
+    default Map<Long, HourlyWeatherDataEntry> getCurrentWeatherEntries(List<Long> cityIds, String unitCode,
+            Deadline deadline) throws WeatherApiException {
+        throw new WeatherApiException(WeatherApiException.Kind.HTTP_ERROR, "Bulk requests are not supported", null);
+    }
+}
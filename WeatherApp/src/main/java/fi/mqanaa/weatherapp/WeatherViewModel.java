@@ -0,0 +1,188 @@
+package fi.mqanaa.weatherapp;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Observable view of the weather data of the program state.
+ * The views of the application listen to the properties and lists of the
+ * model and update only the nodes showing the data that changed, instead
+ * of building their layout again. The model is updated on the JavaFX
+ * Application Thread.
+ */
+public class WeatherViewModel {
+
+    private static final DateTimeFormatter AS_OF_FORMATTER = 
+            DateTimeFormatter.ofPattern("dd.MM. HH:mm").withZone(ZoneId.systemDefault());
+
+    private final ProgramState state;
+    private final StringProperty location = new SimpleStringProperty("");
+    private final ObjectProperty<UnitSystem> units = new SimpleObjectProperty<>(UnitSystem.METRIC);
+    private final ObjectProperty<HourlyWeatherDataEntry> currentWeather = new SimpleObjectProperty<>();
+    private final ObservableList<DailyWeatherDataEntry> dailyWeathers = FXCollections.observableArrayList();
+    private final LongProperty selectedDay = new SimpleLongProperty();
+    private final ObservableList<HourlyWeatherDataEntry> selectedHours = FXCollections.observableArrayList();
+    private final BooleanProperty loading = new SimpleBooleanProperty(false);
+    private final StringProperty asOf = new SimpleStringProperty("");
+    private ForecastSnapshot shownForecast;
+
+    /**
+     * Initializes a view model of a program state.
+     *
+     * @param state the program state holding the weather data.
+     */
+    public WeatherViewModel(ProgramState state) {
+        this.state = state;
+    }
+
+    /**
+     * Updates the model from the program state after weather data has been
+     * loaded. All data is taken from the same published forecast, even if a
+     * load publishes a new one meanwhile. The day of the current weather is
+     * selected.
+     */
+    public void refresh() {
+        shownForecast = state.getForecast();
+        units.set(state.getUnitSystem());
+        if (shownForecast == null) {
+            location.set(state.getCurrentLocation());
+            asOf.set("");
+            currentWeather.set(null);
+            dailyWeathers.clear();
+            selectedHours.clear();
+            return;
+        }
+        location.set(shownForecast.getLocation());
+        asOf.set(shownForecast.isRestored() 
+                ? "As of " + AS_OF_FORMATTER.format(shownForecast.getFetchedAt()) 
+                : "");
+        currentWeather.set(shownForecast.getCurrentWeather());
+        dailyWeathers.setAll(shownForecast.getDailyWeathers());
+        selectDay(shownForecast.getCurrentWeather().getEpochDay());
+    }
+
+    /**
+     * Selects the day whose hourly forecast is shown.
+     *
+     * @param epochDay the day, as given by {@link WeatherDataEntry#getEpochDay()}.
+     */
+    public void selectDay(long epochDay) {
+        selectedDay.set(epochDay);
+        selectedHours.setAll(shownForecast == null ? List.of() : shownForecast.getHourlyWeathers(epochDay));
+    }
+
+    /**
+     * Toggles the unit system between metric and imperial.
+     */
+    public void toggleUnits() {
+        state.changeUnits();
+        units.set(state.getUnitSystem());
+    }
+
+    /**
+     * Sets whether weather data is being loaded in the background.
+     *
+     * @param isLoading true while a load is in flight.
+     */
+    public void setLoading(boolean isLoading) {
+        loading.set(isLoading);
+    }
+
+    /**
+     * Checks whether weather data is being loaded in the background.
+     *
+     * @return true while a load is in flight.
+     */
+    public boolean isLoading() {
+        return loading.get();
+    }
+
+    /**
+     * Returns whether weather data is being loaded in the background.
+     *
+     * @return the loading property.
+     */
+    public ReadOnlyBooleanProperty loadingProperty() {
+        return loading;
+    }
+
+    /**
+     * Returns the location the weather data is shown for.
+     *
+     * @return the location property.
+     */
+    public ReadOnlyStringProperty locationProperty() {
+        return location;
+    }
+
+    /**
+     * Returns when the shown weather data was fetched, if it is from an
+     * earlier session and may be out of date.
+     *
+     * @return the "as of" text property, empty for data loaded in this session.
+     */
+    public ReadOnlyStringProperty asOfProperty() {
+        return asOf;
+    }
+
+    /**
+     * Returns the unit system the weather data is displayed in.
+     *
+     * @return the unit system property.
+     */
+    public ReadOnlyObjectProperty<UnitSystem> unitsProperty() {
+        return units;
+    }
+
+    /**
+     * Returns the current weather.
+     *
+     * @return the current weather property.
+     */
+    public ReadOnlyObjectProperty<HourlyWeatherDataEntry> currentWeatherProperty() {
+        return currentWeather;
+    }
+
+    /**
+     * Returns the daily forecast. The list must not be modified by the views.
+     *
+     * @return the daily weather data entries.
+     */
+    public ObservableList<DailyWeatherDataEntry> getDailyWeathers() {
+        return dailyWeathers;
+    }
+
+    /**
+     * Returns the day whose hourly forecast is shown.
+     *
+     * @return the selected epoch day property.
+     */
+    public ReadOnlyLongProperty selectedDayProperty() {
+        return selectedDay;
+    }
+
+    /**
+     * Returns the hourly forecast of the selected day. The list must not be
+     * modified by the views.
+     *
+     * @return the hourly weather data entries of the selected day.
+     */
+    public ObservableList<HourlyWeatherDataEntry> getSelectedHours() {
+        return selectedHours;
+    }
+}
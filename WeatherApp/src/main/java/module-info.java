@@ -1,5 +1,6 @@
 module fi.mqanaa.weatherapp {
     requires javafx.controls;
+    requires java.net.http;
     requires com.google.gson;
     exports fi.mqanaa.weatherapp;
 }
@@ -0,0 +1,62 @@
+package fi.mqanaa.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the ranking of city suggestions.
+ */
+class CityIndexTest {
+
+    @Test
+    void suggestsOnlyCitiesStartingWithThePrefix() {
+        CityIndex index = new CityIndex();
+        index.addKnown("Tampere");
+        index.addKnown("Tallinn");
+        index.addKnown("Turku");
+
+        assertEquals(List.of("Tallinn", "Tampere"), index.suggest("ta", 5));
+        assertEquals(List.of("Turku"), index.suggest("TU", 5));
+        assertTrue(index.suggest("x", 5).isEmpty());
+        assertTrue(index.suggest("", 5).isEmpty());
+    }
+
+    @Test
+    void ranksFrequentAndFavoriteCitiesFirst() {
+        long now = System.currentTimeMillis();
+        CityIndex index = new CityIndex();
+        index.addKnown("Tallinn");
+        index.addSearched("Tampere", 5, now);
+        index.addSearched("Tarragona", 1, now);
+        index.addFavorite("Taipei");
+
+        assertEquals(List.of("Tampere", "Taipei", "Tarragona", "Tallinn"), index.suggest("ta", 5));
+        assertEquals(List.of("Tampere", "Taipei"), index.suggest("ta", 2));
+    }
+
+    @Test
+    void oldSearchesCountLess() {
+        long now = System.currentTimeMillis();
+        long monthAgo = now - 30L * 24 * 60 * 60 * 1000;
+        CityIndex index = new CityIndex();
+        index.addSearched("Tampere", 4, monthAgo);
+        index.addSearched("Tallinn", 1, now);
+
+        assertEquals(List.of("Tallinn", "Tampere"), index.suggest("ta", 5));
+    }
+
+    @Test
+    void removedSearchesLoseTheirBoost() {
+        long now = System.currentTimeMillis();
+        CityIndex index = new CityIndex();
+        index.addSearched("Tampere", 5, now);
+        index.addSearched("Tallinn", 1, now);
+        index.removeSearched("Tampere");
+
+        assertEquals(List.of("Tallinn", "Tampere"), index.suggest("ta", 5));
+        assertEquals(2, index.size());
+    }
+}
@@ -0,0 +1,181 @@
+package fi.mqanaa.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the columnar forecast series, its entry views and its binary form.
+ */
+class ForecastSeriesTest {
+
+    // 2024-01-01T00:00:00Z
+    private static final long START = 1704067200L;
+    private static final int UTC_OFFSET = 2 * 60 * 60;
+
+    private static ForecastSeries hourlySeries(int size) {
+        ForecastSeries.Builder builder = new ForecastSeries.Builder(true, 2).setUtcOffset(UTC_OFFSET);
+        for (int hour = 0; hour < size; hour++) {
+            builder.addHour(START + hour * 3600L, 800 - hour, hour % 2 == 0, hour - 5.5, hour - 8,
+                    hour * 1.5, 50 + hour);
+        }
+        return builder.build();
+    }
+
+    private static ForecastSeries dailySeries() {
+        ForecastSeries.Builder builder = new ForecastSeries.Builder(false, 3).setUtcOffset(UTC_OFFSET);
+        builder.addDay(START, 500, -3.5, 4.0);
+        builder.addDay(START + 86400L, 600, -7.25, 1.0);
+        builder.addDay(START + 2 * 86400L, 800, 2.0, 9.5);
+        return builder.build();
+    }
+
+    private static byte[] bytesOf(ForecastSeries series) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            series.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ForecastSeries readSeries(byte[] bytes) throws IOException {
+        return ForecastSeries.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    void hourlyViewsReadTheColumns() {
+        // More hours than the expected size, so the columns grow
+        ForecastSeries series = hourlySeries(5);
+
+        assertTrue(series.isHourly());
+        assertEquals(5, series.size());
+        assertEquals(UTC_OFFSET, series.getUtcOffsetSeconds());
+        List<HourlyWeatherDataEntry> entries = series.hourlyEntries();
+        assertEquals(5, entries.size());
+        HourlyWeatherDataEntry entry = entries.get(3);
+        assertEquals(START + 3 * 3600L, entry.getEpochSecond());
+        assertEquals(797, entry.getConditionCode());
+        assertFalse(entry.isDayTime());
+        assertEquals(-2.5, entry.getTemp());
+        assertEquals(-5.0, entry.getFeelsLike());
+        assertEquals(4.5, entry.getWindSpeed());
+        assertEquals(53, entry.getHumidity());
+        assertEquals("05", entry.getHours());
+        assertTrue(entries.get(4).isDayTime());
+    }
+
+    @Test
+    void dailyViewsReadTheColumns() {
+        ForecastSeries series = dailySeries();
+
+        assertFalse(series.isHourly());
+        List<DailyWeatherDataEntry> entries = series.dailyEntries();
+        assertEquals(3, entries.size());
+        assertEquals(600, entries.get(1).getConditionCode());
+        assertEquals(-7.25f, series.getTempMin(1));
+        assertEquals(1.0f, series.getTempMax(1));
+        assertEquals(START + 86400L, entries.get(1).getEpochSecond());
+    }
+
+    @Test
+    void columnsOfTheOtherKindAreRejected() {
+        ForecastSeries hourly = hourlySeries(2);
+        ForecastSeries daily = dailySeries();
+
+        assertThrows(IllegalStateException.class, () -> hourly.getTempMin(0));
+        assertThrows(IllegalStateException.class, hourly::dailyEntries);
+        assertThrows(IllegalStateException.class, () -> daily.getTemp(0));
+        assertThrows(IllegalStateException.class, () -> daily.getHumidity(0));
+        assertThrows(IllegalStateException.class, daily::hourlyEntries);
+        assertThrows(IllegalStateException.class,
+                () -> new ForecastSeries.Builder(false, 1).addHour(START, 800, true, 0, 0, 0, 0));
+        assertThrows(IllegalStateException.class,
+                () -> new ForecastSeries.Builder(true, 1).addDay(START, 800, 0, 0));
+    }
+
+    @Test
+    void indexesOutsideTheSeriesAreRejected() {
+        ForecastSeries series = hourlySeries(2);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> series.getEpochSecond(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> series.getTemp(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> series.hourlyEntries().get(2));
+    }
+
+    @Test
+    void lowestAndHighestTemps() {
+        assertEquals(-5.5f, hourlySeries(4).getLowestTemp());
+        assertEquals(-2.5f, hourlySeries(4).getHighestTemp());
+        assertEquals(-7.25f, dailySeries().getLowestTemp());
+        assertEquals(9.5f, dailySeries().getHighestTemp());
+        assertTrue(Float.isNaN(hourlySeries(0).getLowestTemp()));
+        assertTrue(Float.isNaN(hourlySeries(0).getHighestTemp()));
+    }
+
+    @Test
+    void roundTripKeepsAllColumns() throws IOException {
+        ForecastSeries written = hourlySeries(30);
+
+        ForecastSeries read = readSeries(bytesOf(written));
+
+        assertTrue(read.isHourly());
+        assertEquals(written.size(), read.size());
+        assertEquals(UTC_OFFSET, read.getUtcOffsetSeconds());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(written.getEpochSecond(i), read.getEpochSecond(i));
+            assertEquals(written.getConditionCode(i), read.getConditionCode(i));
+            assertEquals(written.isDayTime(i), read.isDayTime(i));
+            assertEquals(written.getTemp(i), read.getTemp(i));
+            assertEquals(written.getFeelsLike(i), read.getFeelsLike(i));
+            assertEquals(written.getWindSpeed(i), read.getWindSpeed(i));
+            assertEquals(written.getHumidity(i), read.getHumidity(i));
+        }
+
+        ForecastSeries daily = readSeries(bytesOf(dailySeries()));
+        assertFalse(daily.isHourly());
+        assertEquals(9.5f, daily.getTempMax(2));
+    }
+
+    @Test
+    void emptySeriesKeepTheirKind() throws IOException {
+        ForecastSeries hourly = readSeries(bytesOf(new ForecastSeries.Builder(true, 0).build()));
+        ForecastSeries daily = readSeries(bytesOf(new ForecastSeries.Builder(false, 0).build()));
+
+        assertTrue(hourly.isHourly());
+        assertTrue(hourly.hourlyEntries().isEmpty());
+        assertFalse(daily.isHourly());
+        assertTrue(daily.dailyEntries().isEmpty());
+    }
+
+    @Test
+    void readRejectsInvalidSizes() throws IOException {
+        byte[] bytes = bytesOf(hourlySeries(3));
+
+        byte[] negativeSize = bytes.clone();
+        negativeSize[0] = (byte) 0xFF;
+        assertThrows(IOException.class, () -> readSeries(negativeSize));
+
+        byte[] hugeSize = bytes.clone();
+        hugeSize[1] = 0x7F;
+        assertThrows(IOException.class, () -> readSeries(hugeSize));
+
+        // size, kind, UTC offset, epoch seconds and condition codes come before the bitset length
+        int bitsetLength = 4 + 1 + 4 + 3 * 8 + 3 * 2;
+        byte[] longBitset = bytes.clone();
+        longBitset[bitsetLength] = 0x7F;
+        assertThrows(IOException.class, () -> readSeries(longBitset));
+
+        assertThrows(EOFException.class, () -> readSeries(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+}
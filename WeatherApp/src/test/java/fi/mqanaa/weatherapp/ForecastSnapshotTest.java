@@ -0,0 +1,131 @@
+package fi.mqanaa.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for writing and reading forecast snapshots.
+ */
+class ForecastSnapshotTest {
+
+    // 2024-01-01T00:00:00Z
+    private static final long START = 1704067200L;
+    private static final int UTC_OFFSET = 2 * 60 * 60;
+
+    @TempDir
+    Path directory;
+
+    private static ForecastSnapshot sampleSnapshot() {
+        ForecastSeries.Builder current = new ForecastSeries.Builder(true, 1).setUtcOffset(UTC_OFFSET);
+        current.addHour(START, 800, true, 1.5, -2.25, 3.5, 80);
+
+        ForecastSeries.Builder hourly = new ForecastSeries.Builder(true, 48).setUtcOffset(UTC_OFFSET);
+        for (int hour = 0; hour < 48; hour++) {
+            hourly.addHour(START + hour * 3600L, 500 + hour, hour % 24 >= 8, hour * 0.5, hour * 0.5 - 3,
+                    hour % 10, 40 + hour);
+        }
+
+        ForecastSeries.Builder daily = new ForecastSeries.Builder(false, 7).setUtcOffset(UTC_OFFSET);
+        for (int day = 0; day < 7; day++) {
+            daily.addDay(START + day * 86400L, 600 + day, -5.0 + day, 2.5 + day);
+        }
+
+        return new ForecastSnapshot("Tampere", Instant.ofEpochMilli(1704067234567L),
+                current.build().hourlyEntries().get(0), hourly.build(), daily.build());
+    }
+
+    @Test
+    void roundTripKeepsAllData() throws IOException {
+        ForecastSnapshot written = sampleSnapshot();
+        Path file = directory.resolve("forecast.bin");
+        written.write(file);
+
+        ForecastSnapshot read = ForecastSnapshot.read(file);
+
+        assertFalse(written.isRestored());
+        assertTrue(read.isRestored());
+        assertEquals("Tampere", read.getLocation());
+        assertEquals(written.getFetchedAt(), read.getFetchedAt());
+
+        HourlyWeatherDataEntry current = read.getCurrentWeather();
+        assertEquals(START, current.getEpochSecond());
+        assertEquals(800, current.getConditionCode());
+        assertEquals(1.5, current.getTemp());
+        assertEquals(-2.25, current.getFeelsLike());
+        assertEquals(3.5, current.getWindSpeed());
+        assertEquals(80, current.getHumidity());
+        assertTrue(current.isDayTime());
+
+        List<HourlyWeatherDataEntry> hours = read.getHourlyWeathers();
+        assertEquals(48, hours.size());
+        for (int i = 0; i < hours.size(); i++) {
+            HourlyWeatherDataEntry expected = written.getHourlyWeathers().get(i);
+            HourlyWeatherDataEntry actual = hours.get(i);
+            assertEquals(expected.getEpochSecond(), actual.getEpochSecond());
+            assertEquals(expected.getConditionCode(), actual.getConditionCode());
+            assertEquals(expected.isDayTime(), actual.isDayTime());
+            assertEquals(expected.getTemp(), actual.getTemp());
+            assertEquals(expected.getFeelsLike(), actual.getFeelsLike());
+            assertEquals(expected.getWindSpeed(), actual.getWindSpeed());
+            assertEquals(expected.getHumidity(), actual.getHumidity());
+        }
+        assertEquals(UTC_OFFSET, hours.get(0).getSeries().getUtcOffsetSeconds());
+
+        List<DailyWeatherDataEntry> days = read.getDailyWeathers();
+        assertEquals(7, days.size());
+        for (int i = 0; i < days.size(); i++) {
+            ForecastSeries expected = written.getDailyWeathers().get(i).getSeries();
+            ForecastSeries actual = days.get(i).getSeries();
+            assertEquals(expected.getEpochSecond(i), actual.getEpochSecond(i));
+            assertEquals(expected.getConditionCode(i), actual.getConditionCode(i));
+            assertEquals(expected.getTempMin(i), actual.getTempMin(i));
+            assertEquals(expected.getTempMax(i), actual.getTempMax(i));
+        }
+    }
+
+    @Test
+    void hourlyWeathersAreGroupedByLocalDay() throws IOException {
+        Path file = directory.resolve("forecast.bin");
+        sampleSnapshot().write(file);
+        ForecastSnapshot read = ForecastSnapshot.read(file);
+
+        // The hours start at 02:00 local time, so the first day has 22 of them
+        long firstDay = read.getHourlyWeathers().get(0).getEpochDay();
+        assertEquals(22, read.getHourlyWeathers(firstDay).size());
+        assertEquals(24, read.getHourlyWeathers(firstDay + 1).size());
+        assertEquals(2, read.getHourlyWeathers(firstDay + 2).size());
+        assertTrue(read.getHourlyWeathers(firstDay + 3).isEmpty());
+        for (HourlyWeatherDataEntry entry : read.getHourlyWeathers(firstDay + 1)) {
+            assertEquals(firstDay + 1, entry.getEpochDay());
+        }
+    }
+
+    @Test
+    void readRejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("forecast.bin");
+        Files.writeString(file, "{\"favorites\":[]}");
+
+        assertThrows(IOException.class, () -> ForecastSnapshot.read(file));
+    }
+
+    @Test
+    void readRejectsTruncatedSnapshot() throws IOException {
+        Path file = directory.resolve("forecast.bin");
+        sampleSnapshot().write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertThrows(IOException.class, () -> ForecastSnapshot.read(file));
+    }
+}
@@ -0,0 +1,132 @@
+package fi.mqanaa.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that the program state survives a crash through its journal.
+ */
+class ProgramStateJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private WeatherProvider provider;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        provider = mock(WeatherProvider.class);
+        when(provider.resolveLocation(anyString(), any())).thenAnswer(invocation -> {
+            String city = invocation.getArgument(0);
+            return new String[] {"61.5", "23.8", city};
+        });
+    }
+
+    private ProgramState newState() {
+        return new ProgramState(new JsonFileHandler(), provider, SearchHistory.DEFAULT_DEPTH, directory);
+    }
+
+    /**
+     * Waits until the background writer has journaled the changes, as it
+     * would have done before the program crashed.
+     */
+    private void awaitJournal() throws InterruptedException {
+        Path journal = directory.resolve("programState.journal");
+        for (int i = 0; i < 100 && !Files.exists(journal); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(Files.exists(journal), "The journal was not written");
+        // Let a flush that created the file finish writing
+        Thread.sleep(StateJournal.DEFAULT_DEBOUNCE.toMillis() * 2);
+    }
+
+    @Test
+    void changesAreRestoredFromTheJournalAfterACrash() throws Exception {
+        ProgramState before = newState();
+        before.addToSearchHistory("Tampere");
+        before.addToSearchHistory("Oulu");
+        before.addToSearchHistory("Tampere");
+        before.addFavorite("Turku");
+        before.addFavorite("Oulu");
+        before.removeFavorite("Turku");
+        awaitJournal();
+        assertFalse(Files.exists(directory.resolve("programState.json")));
+
+        ProgramState after = newState();
+        after.loadProgramState();
+
+        assertEquals(List.of("Tampere", "Oulu"), after.getHistory());
+        assertEquals(2, after.getHistoryEntries().get(0).getHitCount());
+        assertEquals(1, after.getHistoryEntries().get(1).getHitCount());
+        assertEquals(new TreeSet<>(List.of("Oulu")), after.getFavorites());
+        assertEquals("Tampere", after.getCurrentLocation());
+        assertEquals(List.of("Tampere"), after.getSuggestions("tam", 5));
+    }
+
+    @Test
+    void journalIsReplayedOnTopOfTheSavedState() throws Exception {
+        ProgramState first = newState();
+        first.addToSearchHistory("Helsinki");
+        first.addToSearchHistory("Oulu");
+        first.addFavorite("Helsinki");
+        first.saveProgramState();
+        assertTrue(Files.exists(directory.resolve("programState.json")));
+        assertFalse(Files.exists(directory.resolve("programState.journal")));
+
+        ProgramState second = newState();
+        second.loadProgramState();
+        second.addToSearchHistory("Helsinki");
+        second.removeFavorite("Helsinki");
+        awaitJournal();
+
+        ProgramState third = newState();
+        third.loadProgramState();
+
+        assertEquals(List.of("Helsinki", "Oulu"), third.getHistory());
+        assertEquals(2, third.getHistoryEntries().get(0).getHitCount());
+        assertTrue(third.getFavorites().isEmpty());
+    }
+
+    @Test
+    void incompleteLastRecordIsIgnored() throws Exception {
+        Files.writeString(directory.resolve("programState.journal"),
+                "{\"op\":\"search\",\"city\":\"Oulu\",\"hits\":3,\"lastUsed\":1000}\n"
+                + "{\"op\":\"addFavorite\",\"city\":\"Oulu\"}\n"
+                + "{\"op\":\"search\",\"city\":\"Tur", StandardCharsets.UTF_8);
+
+        ProgramState state = newState();
+        state.loadProgramState();
+
+        assertEquals(List.of("Oulu"), state.getHistory());
+        assertEquals(3, state.getHistoryEntries().get(0).getHitCount());
+        assertEquals(new TreeSet<>(List.of("Oulu")), state.getFavorites());
+    }
+
+    @Test
+    void saveCompactsTheJournalIntoTheStateFile() throws Exception {
+        ProgramState first = newState();
+        first.addToSearchHistory("Tampere");
+        first.addFavorite("Oulu");
+        first.saveProgramState();
+
+        assertFalse(Files.exists(directory.resolve("programState.journal")));
+        ProgramState second = newState();
+        second.loadProgramState();
+        assertEquals(List.of("Tampere"), second.getHistory());
+        assertEquals(new TreeSet<>(List.of("Oulu")), second.getFavorites());
+    }
+}
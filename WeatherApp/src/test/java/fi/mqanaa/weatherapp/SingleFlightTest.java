@@ -0,0 +1,139 @@
+package fi.mqanaa.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for coalescing identical requests and withdrawing single callers.
+ */
+class SingleFlightTest {
+
+    private static final Duration BUDGET = Duration.ofSeconds(10);
+
+    private static void awaitWaiters(SingleFlight<String, String> flights, String key, int waiters)
+            throws InterruptedException {
+        for (int i = 0; i < 200 && flights.getWaiterCount(key) != waiters; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(waiters, flights.getWaiterCount(key));
+    }
+
+    @Test
+    void interruptedCallerOnlyWithdrawsItself() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        AtomicBoolean loaderInterrupted = new AtomicBoolean();
+        Callable<String> loader = () -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                loaderInterrupted.set(true);
+                throw e;
+            }
+            return "Tampere";
+        };
+
+        CompletableFuture<Throwable> first = new CompletableFuture<>();
+        Thread firstCaller = new Thread(() -> {
+            try {
+                flights.call("tampere", loader, Deadline.after(BUDGET));
+                first.complete(null);
+            } catch (Exception e) {
+                first.complete(e);
+            }
+        });
+        firstCaller.start();
+        awaitWaiters(flights, "tampere", 1);
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return flights.call("tampere", loader, Deadline.after(BUDGET));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        awaitWaiters(flights, "tampere", 2);
+
+        firstCaller.interrupt();
+        assertTrue(first.get(5, TimeUnit.SECONDS) instanceof InterruptedException);
+        awaitWaiters(flights, "tampere", 1);
+
+        release.countDown();
+        assertEquals("Tampere", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertFalse(loaderInterrupted.get());
+    }
+
+    @Test
+    void callerTimesOutWithItsOwnDeadline() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<String> loader = () -> {
+            release.await();
+            return "Oulu";
+        };
+
+        CompletableFuture<String> patient = CompletableFuture.supplyAsync(() -> {
+            try {
+                return flights.call("oulu", loader, Deadline.after(BUDGET));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        awaitWaiters(flights, "oulu", 1);
+
+        assertThrows(TimeoutException.class,
+                () -> flights.call("oulu", loader, Deadline.after(Duration.ofMillis(50))));
+        assertEquals(1, flights.getWaiterCount("oulu"));
+
+        release.countDown();
+        assertEquals("Oulu", patient.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void lastCallerLeavingCancelsTheRequest() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Callable<String> loader = () -> {
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return "Turku";
+        };
+
+        assertThrows(TimeoutException.class,
+                () -> flights.call("turku", loader, Deadline.after(Duration.ofMillis(50))));
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, flights.getWaiterCount("turku"));
+    }
+
+    @Test
+    void failureOfTheRequestIsThrown() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        WeatherApiException failure = new WeatherApiException(WeatherApiException.Kind.NOT_FOUND, "Not found", null);
+
+        WeatherApiException thrown = assertThrows(WeatherApiException.class,
+                () -> flights.call("nowhere", () -> {
+                    throw failure;
+                }, Deadline.after(BUDGET)));
+        assertEquals(failure, thrown);
+    }
+}
@@ -0,0 +1,144 @@
+package fi.mqanaa.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for writing, reading and compacting the state journal.
+ */
+class StateJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private static JsonObject record(String city) {
+        JsonObject record = new JsonObject();
+        record.addProperty("op", "search");
+        record.addProperty("city", city);
+        return record;
+    }
+
+    /**
+     * Waits until the background writer has created the journal file.
+     */
+    private static void awaitFile(Path file) throws InterruptedException {
+        for (int i = 0; i < 100 && !Files.exists(file); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(Files.exists(file), "The journal was not written");
+    }
+
+    @Test
+    void recordsAreWrittenAfterTheDebounce() throws Exception {
+        Path file = directory.resolve("journal.jsonl");
+        StateJournal journal = new StateJournal(file, () -> false, Duration.ofMillis(20), 100);
+
+        journal.append(record("Tampere"));
+        journal.append(record("Oulu"));
+        awaitFile(file);
+
+        List<JsonObject> records = journal.readRecords();
+        assertEquals(2, records.size());
+        assertEquals("Tampere", records.get(0).get("city").getAsString());
+        assertEquals("Oulu", records.get(1).get("city").getAsString());
+    }
+
+    @Test
+    void closeWritesPendingRecordsAndCompacts() throws IOException {
+        Path file = directory.resolve("journal.jsonl");
+        AtomicInteger compactions = new AtomicInteger();
+        StateJournal journal = new StateJournal(file, () -> {
+            compactions.incrementAndGet();
+            return true;
+        }, Duration.ofHours(1), 100);
+
+        journal.append(record("Tampere"));
+        assertFalse(Files.exists(file));
+        journal.close();
+
+        assertEquals(1, compactions.get());
+        assertFalse(Files.exists(file));
+        assertTrue(journal.readRecords().isEmpty());
+    }
+
+    @Test
+    void failedCompactionKeepsTheJournal() throws IOException {
+        Path file = directory.resolve("journal.jsonl");
+        StateJournal journal = new StateJournal(file, () -> false, Duration.ofHours(1), 100);
+
+        journal.append(record("Tampere"));
+        journal.close();
+
+        List<JsonObject> records = journal.readRecords();
+        assertEquals(1, records.size());
+        assertEquals("Tampere", records.get(0).get("city").getAsString());
+    }
+
+    @Test
+    void compactsWhenTheThresholdIsReached() throws Exception {
+        Path file = directory.resolve("journal.jsonl");
+        AtomicInteger compactions = new AtomicInteger();
+        StateJournal journal = new StateJournal(file, () -> {
+            compactions.incrementAndGet();
+            return true;
+        }, Duration.ofMillis(20), 3);
+
+        journal.append(record("Tampere"));
+        journal.append(record("Oulu"));
+        journal.append(record("Turku"));
+        for (int i = 0; i < 100 && compactions.get() == 0; i++) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(1, compactions.get());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void readIgnoresIncompleteTail() throws IOException {
+        Path file = directory.resolve("journal.jsonl");
+        Files.writeString(file, "{\"op\":\"search\",\"city\":\"Tampere\"}\n"
+                + "\n"
+                + "{\"op\":\"search\",\"city\":\"Oulu\"}\n"
+                + "{\"op\":\"search\",\"ci", StandardCharsets.UTF_8);
+        StateJournal journal = new StateJournal(file, () -> true);
+
+        List<JsonObject> records = journal.readRecords();
+
+        assertEquals(2, records.size());
+        assertEquals("Oulu", records.get(1).get("city").getAsString());
+    }
+
+    @Test
+    void readWithoutJournalIsEmpty() throws IOException {
+        StateJournal journal = new StateJournal(directory.resolve("journal.jsonl"), () -> true);
+
+        assertTrue(journal.readRecords().isEmpty());
+    }
+
+    @Test
+    void appendsAfterExistingRecords() throws IOException {
+        Path file = directory.resolve("journal.jsonl");
+        Files.writeString(file, "{\"op\":\"search\",\"city\":\"Tampere\"}\n", StandardCharsets.UTF_8);
+        StateJournal journal = new StateJournal(file, () -> false, Duration.ofHours(1), 100);
+
+        journal.append(record("Oulu"));
+        journal.close();
+
+        List<JsonObject> records = journal.readRecords();
+        assertEquals(2, records.size());
+        assertEquals("Oulu", records.get(1).get("city").getAsString());
+    }
+}